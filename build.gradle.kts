@@ -2,6 +2,8 @@ plugins {
     id("java")
     id("org.jetbrains.kotlin.jvm") version "2.1.0"
     id("org.jetbrains.intellij.platform") version "2.5.0"
+    // 性能基准测试 (src/jmh)，运行：./gradlew jmh
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.bap.dev"
@@ -126,6 +128,13 @@ tasks {
     }
 }
 
+jmh {
+    // 基准测试不需要太长时间，结果只用于比较新旧实现
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+}
+
 tasks {
     runIde {
         // 强制沙箱环境使用英文 (en_US)
@@ -0,0 +1,113 @@
+package com.bap.dev.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BapHashUtils 与原实现的对比 (运行：./gradlew jmh)
+ * legacy* 为原来的写法：每次调用 MessageDigest.getInstance，String.format 逐字节输出十六进制，
+ * 源码先解码成字符串再 replace / replaceAll；其余为 BapHashUtils 的对应方法。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BapHashUtilsBenchmark {
+
+    // 源码文件大小 (字节)
+    @Param({"2048", "65536"})
+    public int size;
+
+    private byte[] content;
+    private String text;
+    private byte[] digest;
+
+    @Setup
+    public void setup() throws Exception {
+        // 模拟 Windows 换行、带中文注释的 Java 源码
+        String line = "    // 计算文件状态\r\n    public String getName() { return this.name; }\r\n\r\n";
+        int lineBytes = line.getBytes(StandardCharsets.UTF_8).length;
+        StringBuilder sb = new StringBuilder(size + line.length());
+        for (int bytes = 0; bytes < size; bytes += lineBytes) {
+            sb.append(line);
+        }
+        text = sb.toString();
+        content = text.getBytes(StandardCharsets.UTF_8);
+        digest = MessageDigest.getInstance("MD5").digest(content);
+    }
+
+    // --- 十六进制输出 ---
+
+    @Benchmark
+    public String legacyHex() {
+        return legacyToHex(digest);
+    }
+
+    @Benchmark
+    public String hex() {
+        return BapHashUtils.toHex(digest);
+    }
+
+    // --- 原始字节 MD5 ---
+
+    @Benchmark
+    public String legacyRawMd5() throws Exception {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        return legacyToHex(md.digest(content));
+    }
+
+    @Benchmark
+    public String rawMd5() {
+        return BapHashUtils.md5(content);
+    }
+
+    // --- 标准 MD5 (\r\n 归一化) ---
+
+    @Benchmark
+    public String legacyStandardMd5() throws Exception {
+        String normalized = new String(content, StandardCharsets.UTF_8).replace("\r\n", "\n");
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        return legacyToHex(md.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String standardMd5Stream() throws IOException {
+        return BapHashUtils.standardMd5(new ByteArrayInputStream(content)).md5;
+    }
+
+    @Benchmark
+    public String standardMd5Text() {
+        return BapHashUtils.standardMd5(text);
+    }
+
+    // --- 宽松 MD5 (去除空白字符) ---
+
+    @Benchmark
+    public String legacyLooseMd5() throws Exception {
+        String stripped = new String(content, StandardCharsets.UTF_8).replaceAll("\\s+", "");
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        return legacyToHex(md.digest(stripped.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String looseMd5Stream() throws IOException {
+        return BapHashUtils.looseMd5(new ByteArrayInputStream(content));
+    }
+
+    private static String legacyToHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) hex.append(String.format("%02X", b));
+        return hex.toString();
+    }
+}
\ No newline at end of file
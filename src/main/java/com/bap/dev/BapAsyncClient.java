@@ -0,0 +1,166 @@
+package com.bap.dev;
+
+import bap.dev.FileDto;
+import bap.dev.JavaDto;
+import bap.java.CJavaCenterIntf;
+import bap.java.CJavaCode;
+import bap.md.ver.VersionNode;
+import com.bap.dev.i18n.BapBundle;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import cplugin.ms.dto.CResFileDto;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * BapRpcClient 的异步封装
+ * 每个 RPC 在插件自有的有界线程池中执行并返回 CompletableFuture，互不依赖的请求可以同时发出。
+ * 每次调用都有超时；配合 await 使用时，进度条被取消会立即结束等待。
+ * 注意：超时和取消只结束等待，已经发出的阻塞请求仍会在后台线程中执行完毕。
+ */
+public class BapAsyncClient {
+
+    // 默认单次调用超时
+    public static final long DEFAULT_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(60);
+    // 所有异步调用共用，限制同时进行的请求数，避免压垮服务器
+    private static final int MAX_CONCURRENT_CALLS = 8;
+    private static final ExecutorService EXECUTOR =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Bap Async RPC", MAX_CONCURRENT_CALLS);
+    // await 检查取消状态的间隔
+    private static final long CANCEL_POLL_MS = 100;
+
+    private final BapRpcClient client;
+    private final long timeoutMs;
+
+    public BapAsyncClient(@NotNull BapRpcClient client) {
+        this(client, DEFAULT_TIMEOUT_MS);
+    }
+
+    public BapAsyncClient(@NotNull BapRpcClient client, long timeoutMs) {
+        this.client = client;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * 单个 RPC 调用
+     */
+    @FunctionalInterface
+    public interface RpcCall<T> {
+        T call(CJavaCenterIntf service) throws Exception;
+    }
+
+    /**
+     * 异步执行任意 RPC，受检异常包装为 CompletionException
+     */
+    public <T> CompletableFuture<T> call(@NotNull RpcCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call(client.getService());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR).orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<CJavaCode> getJavaCode(String projectUuid, String fullClass) {
+        return call(service -> service.getJavaCode(projectUuid, fullClass));
+    }
+
+    public CompletableFuture<CResFileDto> getResFile(String projectUuid, String path, boolean withContent) {
+        return call(service -> service.getResFile(projectUuid, path, withContent));
+    }
+
+    public CompletableFuture<CJavaCode> getHistoryCode(String historyUuid) {
+        return call(service -> service.getHistoryCode(historyUuid));
+    }
+
+    public CompletableFuture<CResFileDto> getHistoryFile(String historyUuid) {
+        return call(service -> service.getHistoryFile(historyUuid));
+    }
+
+    public CompletableFuture<Map<String, JavaDto>> queryCodeFile(String projectUuid, String folder) {
+        return call(service -> service.queryCodeFile(projectUuid, folder));
+    }
+
+    public CompletableFuture<Map<String, FileDto>> queryAllFileMap(String projectUuid, String folder) {
+        return call(service -> service.queryAllFileMap(projectUuid, folder));
+    }
+
+    public CompletableFuture<List<VersionNode>> queryFileHistory(String projectUuid, String key) {
+        return call(service -> service.queryFileHistory(projectUuid, key));
+    }
+
+    public CompletableFuture<List<VersionNode>> queryVersionList(String projectUuid) {
+        return call(service -> service.queryVersionList(projectUuid));
+    }
+
+    /**
+     * 在后台任务中等待结果
+     * 进度条被取消时取消 future 并抛出 ProcessCanceledException；RPC 本身的异常原样抛出
+     * @param indicator 为 null 时使用当前线程的进度条
+     */
+    public static <T> T await(@NotNull CompletableFuture<T> future, @Nullable ProgressIndicator indicator) throws Exception {
+        while (true) {
+            try {
+                return future.get(CANCEL_POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                try {
+                    if (indicator != null) {
+                        indicator.checkCanceled();
+                    } else {
+                        ProgressManager.checkCanceled();
+                    }
+                } catch (ProcessCanceledException pce) {
+                    future.cancel(true);
+                    throw pce;
+                }
+            } catch (CancellationException e) {
+                throw new ProcessCanceledException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof TimeoutException) {
+                    throw new TimeoutException(BapBundle.message("error.rpc_timeout"));
+                }
+                if (cause instanceof Exception) throw (Exception) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 等待一组同时发出的请求全部完成，结果再通过各自的 join() 取得
+     * 任何一个失败时立即结束等待并抛出该异常；失败或被取消时其余请求一并取消 (尚未开始执行的不再发出)
+     */
+    public static void awaitAll(@Nullable ProgressIndicator indicator, @NotNull CompletableFuture<?>... futures) throws Exception {
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures);
+        for (CompletableFuture<?> future : futures) {
+            future.whenComplete((result, error) -> {
+                if (error != null) all.completeExceptionally(error);
+            });
+        }
+        boolean completed = false;
+        try {
+            await(all, indicator);
+            completed = true;
+        } finally {
+            if (!completed) {
+                for (CompletableFuture<?> future : futures) future.cancel(true);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,7 +1,6 @@
 package com.bap.dev;
 
 import bap.java.CJavaCenterIntf;
-import com.cdao.CDaoConst;
 import com.cdao.mgr.CSession;
 import com.leavay.nio.crpc.CRpcAdapter;
 import com.leavay.nio.crpc.CRpcClientWrapper;
@@ -21,6 +20,15 @@ public class BapRpcClient {
     private String currentUri;
     private String currentUser;
     private String currentPwd;
+    // 登录返回的会话，每次调用时由 BapRpcSessionBinder 设置为全局上下文
+    private volatile CSession session;
+
+    // 进行中的调用数 (含等待会话切换的)，由 BapRpcSessionBinder 在每次调用前后维护；以下字段由 this 保护
+    private int activeCalls;
+    // 有调用进行中时收到的关闭请求，最后一个调用返回后再关闭
+    private boolean closeWhenIdle;
+    // 最后一次调用返回的时间
+    private volatile long lastCallTime = System.currentTimeMillis();
 
     /**
      * 建立连接并登录
@@ -38,10 +46,9 @@ public class BapRpcClient {
             }
         };
 
-        // 调用登录接口
-        CSession session = rpcWrapper.getIntf(true).login(user, pwd);
-        // 设置全局 Session 上下文
-        CRpcAdapter.setGlobalContext(CDaoConst.CTX_SESSION, session);
+        // 调用登录接口 (登录耗时同样计入统计)
+        // 会话不在这里写入全局上下文：其他连接可能正在调用，由 getService() 返回的接口在每次调用时设置
+        this.session = BapRpcInstrumentation.wrap(rpcWrapper.getIntf(true), uri).login(user, pwd);
 
         this.currentUri = uri;
         this.currentUser = user;
@@ -52,12 +59,24 @@ public class BapRpcClient {
 
     /**
      * 获取 RPC 接口服务
+     * 返回的接口带有调用统计，耗时和数据量记录到 BapRpcMetrics；
+     * 每次调用前把本连接的会话设置为全局上下文 (见 BapRpcSessionBinder)；
+     * 相同的并发只读请求会合并为一次调用 (见 BapRpcCoalescer)
      */
     public CJavaCenterIntf getService() {
         if (rpcWrapper == null) {
             throw new IllegalStateException("RPC client is not connected. Call connect() first.");
         }
-        return rpcWrapper.getIntf(true);
+        CJavaCenterIntf service = BapRpcSessionBinder.wrap(rpcWrapper.getIntf(true), this);
+        service = BapRpcInstrumentation.wrap(service, currentUri);
+        return BapRpcCoalescer.wrap(service, currentUri, currentUser);
+    }
+
+    /**
+     * 获取异步调用封装，互不依赖的请求可以同时发出
+     */
+    public BapAsyncClient async() {
+        return new BapAsyncClient(this);
     }
 
     /**
@@ -72,6 +91,49 @@ public class BapRpcClient {
             }
             rpcWrapper = null;
         }
+        session = null;
+    }
+
+    /**
+     * 没有进行中的调用时立即关闭，否则等最后一个调用返回后再关闭
+     * 供连接池回收连接时使用，避免在调用方使用过程中把连接关掉
+     */
+    public synchronized void shutdownWhenIdle() {
+        if (activeCalls > 0) {
+            closeWhenIdle = true;
+            return;
+        }
+        shutdown();
+    }
+
+    /**
+     * 是否有进行中的调用
+     */
+    public synchronized boolean isInUse() {
+        return activeCalls > 0;
+    }
+
+    /**
+     * 最后一次调用返回的时间
+     */
+    public long getLastCallTime() {
+        return lastCallTime;
+    }
+
+    synchronized void callStarted() {
+        activeCalls++;
+    }
+
+    synchronized void callFinished() {
+        lastCallTime = System.currentTimeMillis();
+        if (--activeCalls == 0 && closeWhenIdle) {
+            closeWhenIdle = false;
+            shutdown();
+        }
+    }
+
+    CSession getSession() {
+        return session;
     }
 
     public boolean isConnected() {
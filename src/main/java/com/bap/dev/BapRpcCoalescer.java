@@ -0,0 +1,111 @@
+package com.bap.dev;
+
+import bap.java.CJavaCenterIntf;
+import com.intellij.openapi.progress.ProgressManager;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 合并相同的并发只读请求 (single-flight)
+ * 同一服务器、同一用户、同一方法和参数的请求正在进行时，后来的调用不再发给服务器，
+ * 而是等待并共享第一个调用的结果或异常。请求结束后立即移除，不做结果缓存。
+ * 注意：共享的返回对象会被多个调用方同时拿到，调用方不应修改它。
+ */
+final class BapRpcCoalescer implements InvocationHandler {
+
+    // 只合并无副作用的查询方法
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of(
+            "getJavaCode",
+            "getResFile",
+            "getHistoryCode",
+            "getHistoryFile",
+            "queryCodeFile",
+            "queryAllFileMap",
+            "queryFileHistory",
+            "queryVersionList",
+            "queryVersionDetail",
+            "getProject",
+            "getAllProjects"
+    );
+    // 等待其他线程的结果时检查取消状态的间隔
+    private static final long CANCEL_POLL_MS = 100;
+
+    // 所有连接共用，Key 中包含服务器和用户
+    private static final Map<List<Object>, CompletableFuture<Object>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private final CJavaCenterIntf target;
+    private final String server;
+    private final String user;
+
+    private BapRpcCoalescer(CJavaCenterIntf target, String server, String user) {
+        this.target = target;
+        this.server = server;
+        this.user = user;
+    }
+
+    static CJavaCenterIntf wrap(CJavaCenterIntf target, String server, String user) {
+        return (CJavaCenterIntf) Proxy.newProxyInstance(
+                CJavaCenterIntf.class.getClassLoader(),
+                new Class<?>[]{CJavaCenterIntf.class},
+                new BapRpcCoalescer(target, server, user));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class || !IDEMPOTENT_METHODS.contains(method.getName())) {
+            return invokeTarget(method, args);
+        }
+
+        List<Object> key = Arrays.asList(server, user, method, args == null ? List.of() : Arrays.asList(args));
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = IN_FLIGHT.putIfAbsent(key, mine);
+        if (inFlight != null) {
+            // 已有相同请求在进行，等待它的结果
+            return await(inFlight);
+        }
+
+        try {
+            Object result = invokeTarget(method, args);
+            mine.complete(result);
+            return result;
+        } catch (Throwable t) {
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            IN_FLIGHT.remove(key, mine);
+        }
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> future) throws Throwable {
+        while (true) {
+            try {
+                return future.get(CANCEL_POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // 等待方的进度条被取消时直接退出，不影响正在执行的请求
+                ProgressManager.checkCanceled();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.bap.dev;
+
+import bap.java.CJavaCenterIntf;
+import bap.java.CJavaCode;
+import com.bap.dev.service.BapRpcMetrics;
+import cplugin.ms.dto.CResFileDto;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * RPC 接口的统计代理
+ * 包装 CJavaCenterIntf，每次调用后把耗时、数据量和是否失败写入 BapRpcMetrics。
+ * 数据量按参数/返回值中的代码文本、文件内容和集合元素估算，不做序列化，开销可以忽略。
+ */
+final class BapRpcInstrumentation implements InvocationHandler {
+
+    // 估算集合大小时最多展开的层数和元素数，避免大结果集拖慢调用
+    private static final int MAX_DEPTH = 3;
+    private static final int MAX_ELEMENTS = 10_000;
+    // 无法估算的对象按固定大小计
+    private static final int OBJECT_BYTES = 64;
+
+    private final CJavaCenterIntf target;
+    private final String server;
+
+    private BapRpcInstrumentation(CJavaCenterIntf target, String server) {
+        this.target = target;
+        this.server = server;
+    }
+
+    static CJavaCenterIntf wrap(CJavaCenterIntf target, String server) {
+        return (CJavaCenterIntf) Proxy.newProxyInstance(
+                CJavaCenterIntf.class.getClassLoader(),
+                new Class<?>[]{CJavaCenterIntf.class},
+                new BapRpcInstrumentation(target, server));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(target, args);
+        }
+
+        long start = System.nanoTime();
+        Object result = null;
+        boolean error = false;
+        try {
+            result = method.invoke(target, args);
+            return result;
+        } catch (InvocationTargetException e) {
+            error = true;
+            throw e.getCause();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            BapRpcMetrics.getInstance().record(server == null ? "" : server, method.getName(), elapsed,
+                    estimate(args, 0), estimate(result, 0), error);
+        }
+    }
+
+    private static long estimate(Object value, int depth) {
+        if (value == null) return 0;
+        if (value instanceof byte[]) return ((byte[]) value).length;
+        if (value instanceof CharSequence) return ((CharSequence) value).length();
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) return 8;
+        if (value instanceof CJavaCode) {
+            CJavaCode code = (CJavaCode) value;
+            return OBJECT_BYTES + (code.code == null ? 0 : code.code.length());
+        }
+        if (value instanceof CResFileDto) {
+            byte[] bin = ((CResFileDto) value).getFileBin();
+            return OBJECT_BYTES + (bin == null ? 0 : bin.length);
+        }
+        if (depth >= MAX_DEPTH) return OBJECT_BYTES;
+        if (value instanceof Object[]) {
+            long total = 0;
+            Object[] array = (Object[]) value;
+            for (int i = 0; i < array.length && i < MAX_ELEMENTS; i++) {
+                total += estimate(array[i], depth + 1);
+            }
+            return total;
+        }
+        if (value instanceof Collection) {
+            long total = 0;
+            int n = 0;
+            for (Object item : (Collection<?>) value) {
+                if (n++ >= MAX_ELEMENTS) break;
+                total += estimate(item, depth + 1);
+            }
+            return total;
+        }
+        if (value instanceof Map) {
+            long total = 0;
+            int n = 0;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                if (n++ >= MAX_ELEMENTS) break;
+                total += estimate(e.getKey(), depth + 1) + estimate(e.getValue(), depth + 1);
+            }
+            return total;
+        }
+        return OBJECT_BYTES;
+    }
+}
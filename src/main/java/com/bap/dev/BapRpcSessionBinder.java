@@ -0,0 +1,164 @@
+package com.bap.dev;
+
+import bap.java.CJavaCenterIntf;
+import com.cdao.CDaoConst;
+import com.cdao.mgr.CSession;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.leavay.nio.crpc.CRpcAdapter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * RPC 接口的会话代理
+ * CRpcAdapter 的 Session 上下文是进程全局的，连接池中多个已登录的连接在不同线程上同时发起调用时，
+ * 需要保证每次调用发出时全局上下文是本连接的会话。
+ * 这里在每次调用前设置会话：同一会话的调用可以并发执行；其他会话的调用按到达顺序排队，
+ * 有会话在排队时当前会话的新调用也要排在它后面，等进行中的调用全部返回后切换到队首的会话，避免某个会话一直等不到。
+ * 等待期间响应进度条的取消 (抛出 ProcessCanceledException)。
+ * 同时在所属连接上登记进行中的调用 (含排队中的)，连接池据此判断连接是否正在使用。
+ */
+final class BapRpcSessionBinder implements InvocationHandler {
+
+    // 等待期间检查取消状态的间隔
+    private static final long CANCEL_POLL_MS = 100;
+
+    private static final Object LOCK = new Object();
+    // 以下字段均由 LOCK 保护
+    // 当前写入全局上下文的会话，以及已放行、尚未返回的调用数
+    private static CSession activeSession;
+    private static int inFlight;
+    // 等待切换的会话，按到达顺序排列；相邻的同一会话的调用合并为一组，一起放行
+    private static final Deque<Group> queue = new ArrayDeque<>();
+
+    private final CJavaCenterIntf target;
+    private final BapRpcClient owner;
+
+    private BapRpcSessionBinder(CJavaCenterIntf target, BapRpcClient owner) {
+        this.target = target;
+        this.owner = owner;
+    }
+
+    static CJavaCenterIntf wrap(CJavaCenterIntf target, BapRpcClient owner) {
+        return (CJavaCenterIntf) Proxy.newProxyInstance(
+                CJavaCenterIntf.class.getClassLoader(),
+                new Class<?>[]{CJavaCenterIntf.class},
+                new BapRpcSessionBinder(target, owner));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(target, args);
+        }
+
+        owner.callStarted();
+        try {
+            CSession s = owner.getSession();
+            if (s == null) {
+                return call(method, args);
+            }
+            acquire(s);
+            try {
+                return call(method, args);
+            } finally {
+                release();
+            }
+        } finally {
+            owner.callFinished();
+        }
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void acquire(CSession s) {
+        synchronized (LOCK) {
+            // 没有会话在排队，且当前就是本会话 (或没有进行中的调用) 时直接放行
+            if (queue.isEmpty() && (activeSession == s || inFlight == 0)) {
+                activate(s);
+                inFlight++;
+                return;
+            }
+
+            Group group = queue.peekLast();
+            if (group == null || group.session != s) {
+                group = new Group(s);
+                queue.addLast(group);
+            }
+            group.waiters++;
+            admitHead();
+
+            while (!group.admitted) {
+                try {
+                    LOCK.wait(CANCEL_POLL_MS);
+                    if (!group.admitted) ProgressManager.checkCanceled();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    abandon(group);
+                    throw new ProcessCanceledException(e);
+                } catch (ProcessCanceledException e) {
+                    abandon(group);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void release() {
+        synchronized (LOCK) {
+            inFlight--;
+            admitHead();
+        }
+    }
+
+    // 调用方持有 LOCK。进行中的调用全部返回 (或队首就是当前会话) 时放行队首的一组，组内的调用数直接计入 inFlight
+    private static void admitHead() {
+        Group head;
+        while ((head = queue.peekFirst()) != null && (inFlight == 0 || head.session == activeSession)) {
+            queue.pollFirst();
+            activate(head.session);
+            inFlight += head.waiters;
+            head.admitted = true;
+            LOCK.notifyAll();
+        }
+    }
+
+    // 调用方持有 LOCK。等待被取消：已被放行时归还名额，否则退出所在的组
+    private static void abandon(Group group) {
+        if (group.admitted) {
+            inFlight--;
+        } else if (--group.waiters == 0) {
+            queue.remove(group);
+        }
+        admitHead();
+    }
+
+    // 调用方持有 LOCK
+    private static void activate(CSession s) {
+        if (activeSession != s) {
+            CRpcAdapter.setGlobalContext(CDaoConst.CTX_SESSION, s);
+            activeSession = s;
+        }
+    }
+
+    private static final class Group {
+        final CSession session;
+        int waiters;
+        boolean admitted;
+
+        Group(CSession session) {
+            this.session = session;
+        }
+    }
+}
\ No newline at end of file
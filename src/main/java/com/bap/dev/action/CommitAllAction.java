@@ -2,14 +2,18 @@ package com.bap.dev.action;
 
 import bap.java.*;
 import com.bap.dev.BapRpcClient;
-import com.bap.dev.handler.ProjectRefresher;
 import com.bap.dev.i18n.BapBundle;
 import com.bap.dev.listener.BapChangesNotifier;
+import com.bap.dev.service.BapConfigService;
 import com.bap.dev.service.BapConnectionManager;
+import com.bap.dev.service.BapDevelopConfig;
 import com.bap.dev.service.BapFileStatus;
 import com.bap.dev.service.BapFileStatusService;
+import com.bap.dev.service.BapManifestCache;
+import com.bap.dev.service.BapRefreshScheduler;
 import com.bap.dev.settings.BapSettingsState;
 import com.bap.dev.ui.BapChangesTreePanel;
+import com.bap.dev.util.BapUtils;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationType;
 import com.intellij.notification.Notifications;
@@ -21,13 +25,13 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.application.WriteAction;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.ui.Messages;
-import com.intellij.openapi.vcs.FileStatusManager;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -43,13 +47,8 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.File;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.*;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.openapi.fileTypes.FileTypeManager;
 import com.intellij.testFramework.LightVirtualFile;
@@ -80,8 +79,7 @@ public class CommitAllAction extends AnAction {
                 try {
                     indicator.setIndeterminate(true);
                     indicator.setText(BapBundle.message("progress.refresh_module"));
-                    ProjectRefresher refresher = new ProjectRefresher(project);
-                    refresher.refreshModule(moduleRoot);
+                    BapRefreshScheduler.getInstance(project).refreshAndWait(moduleRoot, true);
 
                     indicator.setText(BapBundle.message("progress.collect_changes"));
                     List<VirtualFile> changedFiles = collectChangedFiles(project, moduleRoot);
@@ -94,12 +92,11 @@ public class CommitAllAction extends AnAction {
                     // --- 🔴 新增：获取工程名称逻辑 (后台线程执行，避免卡顿) ---
                     String[] targetInfo = new String[]{"Unknown", "Unknown"}; // [0]=Uri, [1]=ProjectName
                     try {
-                        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
-                        String content = Files.readString(confFile.toPath());
-                        String uri = extractAttr(content, "Uri");
-                        String user = extractAttr(content, "User");
-                        String pwd = extractAttr(content, "Password");
-                        String projectUuid = extractAttr(content, "Project");
+                        BapDevelopConfig config = BapConfigService.getInstance(project).requireConfig(moduleRoot);
+                        String uri = config.uri;
+                        String user = config.user;
+                        String pwd = config.password;
+                        String projectUuid = config.projectUuid;
 
                         if (uri != null) targetInfo[0] = uri;
                         if (projectUuid != null) targetInfo[1] = projectUuid; // 默认显示 UUID
@@ -109,7 +106,6 @@ public class CommitAllAction extends AnAction {
                             indicator.setText(BapBundle.message("action.CommitAllAction.progress.fetch_project"));
                             BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
                             try {
-                                client.connect(uri, user, pwd);
                                 CJavaProjectDto javaProject = client.getService().getProject(projectUuid);
                                 if (javaProject != null) {
                                     String name = javaProject.getName();
@@ -142,6 +138,8 @@ public class CommitAllAction extends AnAction {
                         // ---------------------------------
                     });
 
+                } catch (ProcessCanceledException ex) {
+                    throw ex;
                 } catch (Exception ex) {
                     ex.printStackTrace();
                     showError(BapBundle.message("action.CommitAllAction.error.prepare_failed_prefix") + ex.getMessage());
@@ -156,12 +154,11 @@ public class CommitAllAction extends AnAction {
             public void run(@NotNull ProgressIndicator indicator) {
                 BapRpcClient client = null;
                 try {
-                    File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
-                    String content = Files.readString(confFile.toPath());
-                    String uri = extractAttr(content, "Uri");
-                    String user = extractAttr(content, "User");
-                    String pwd = extractAttr(content, "Password");
-                    String projectUuid = extractAttr(content, "Project");
+                    BapDevelopConfig config = BapConfigService.getInstance(project).requireConfig(moduleRoot);
+                    String uri = config.uri;
+                    String user = config.user;
+                    String pwd = config.password;
+                    String projectUuid = config.projectUuid;
 
                     indicator.setText(BapBundle.message("progress.connecting"));
                     client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
@@ -194,6 +191,8 @@ public class CommitAllAction extends AnAction {
                     pkg.setDeleteFileMap(deleteFileMap);
 
                     client.getService().commitCode(projectUuid, pkg);
+                    // 云端 MD5 已变化，缓存的云端清单失效
+                    BapManifestCache.getInstance(project).invalidateModule(moduleRoot.getPath());
                     // 🔴 修改：传入 moduleRoot
                     CommitAllAction.this.onSuccess(project, files, moduleRoot);
 
@@ -228,7 +227,8 @@ public class CommitAllAction extends AnAction {
 
 
         // 新增/修改逻辑
-        byte[] content = file.contentsToByteArray();
+        // 未保存的文档直接取内存中的内容
+        byte[] content = BapUtils.contentsToByteArray(file);
         CResFileDto dto = new CResFileDto();
         dto.setFileName(file.getName());
         int lastSlash = relativePath.lastIndexOf('/');
@@ -276,7 +276,7 @@ public class CommitAllAction extends AnAction {
         int lastDot = fullClassName.lastIndexOf('.');
         code.setJavaPackage((lastDot > 0) ? fullClassName.substring(0, lastDot) : "");
 
-        String content = new String(file.contentsToByteArray(), StandardCharsets.UTF_8);
+        String content = BapUtils.loadText(file);
         code.setCode(content);
 
         String ownerUuid = findFolderUuid(folders, folderName);
@@ -354,9 +354,6 @@ public class CommitAllAction extends AnAction {
                 }
             }
 
-            PsiManager.getInstance(project).dropPsiCaches();
-            FileStatusManager.getInstance(project).fileStatusesChanged();
-
             // 🔴 新增：设置自动聚焦
             project.putUserData(BapChangesTreePanel.LAST_BAP_MODULE_ROOT, moduleRoot);
 
@@ -382,12 +379,6 @@ public class CommitAllAction extends AnAction {
         return null;
     }
 
-    private String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
-    }
-
     private void showError(String msg) {
         ApplicationManager.getApplication().invokeLater(() -> Messages.showErrorDialog(msg, BapBundle.message("title.commit_error")));
     }
@@ -511,13 +502,12 @@ public class CommitAllAction extends AnAction {
     private List<VirtualFile> collectChangedFiles(Project project, VirtualFile moduleRoot) {
         BapFileStatusService statusService = BapFileStatusService.getInstance(project);
         List<VirtualFile> result = new ArrayList<>();
-        Map<String, BapFileStatus> allStatuses = statusService.getAllStatuses();
+        // 只取该模块分区中的状态，不扫描其他模块
+        Map<String, BapFileStatus> moduleStatuses = statusService.getModuleStatuses(moduleRoot.getPath());
 
-        for (Map.Entry<String, BapFileStatus> entry : allStatuses.entrySet()) {
+        for (Map.Entry<String, BapFileStatus> entry : moduleStatuses.entrySet()) {
             String path = entry.getKey();
             BapFileStatus status = entry.getValue();
-            if (status == BapFileStatus.NORMAL) continue;
-            if (!path.startsWith(moduleRoot.getPath())) continue;
 
             VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
             if (file != null) {
@@ -4,11 +4,15 @@ import bap.java.*;
 import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
 import com.bap.dev.listener.BapChangesNotifier;
+import com.bap.dev.service.BapConfigService;
 import com.bap.dev.service.BapConnectionManager;
+import com.bap.dev.service.BapDevelopConfig;
 import com.bap.dev.service.BapFileStatus;
 import com.bap.dev.service.BapFileStatusService;
+import com.bap.dev.service.BapManifestCache;
 import com.bap.dev.settings.BapSettingsState;
 import com.bap.dev.ui.BapChangesTreePanel;
+import com.bap.dev.util.BapUtils;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationType;
 import com.intellij.notification.Notifications;
@@ -20,14 +24,12 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.application.WriteAction;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.ui.Messages;
-import com.intellij.openapi.vcs.FileStatusManager;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
@@ -42,13 +44,8 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.File;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.*;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class CommitFileAction extends AnAction {
 
@@ -61,8 +58,6 @@ public class CommitFileAction extends AnAction {
 
         if (project == null || selectedFiles == null || selectedFiles.length == 0) return;
 
-        FileDocumentManager.getInstance().saveAllDocuments();
-
         VirtualFile moduleRoot = findModuleRoot(selectedFiles[0]);
         if (moduleRoot == null) {
             Messages.showWarningDialog(
@@ -78,13 +73,12 @@ public class CommitFileAction extends AnAction {
             String targetUri = "Unknown";
             String targetProject = "Unknown";
             try {
-                File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
-                if (confFile.exists()) {
-                    String content = Files.readString(confFile.toPath());
-                    String uri = extractAttr(content, "Uri");
-                    String projectUuid = extractAttr(content, "Project");
-                    String user = extractAttr(content, "User");
-                    String pwd = extractAttr(content, "Password");
+                BapDevelopConfig config = BapConfigService.getInstance(project).getConfig(moduleRoot);
+                if (config != null) {
+                    String uri = config.uri;
+                    String projectUuid = config.projectUuid;
+                    String user = config.user;
+                    String pwd = config.password;
 
                     if (uri != null) targetUri = uri;
 
@@ -128,18 +122,17 @@ public class CommitFileAction extends AnAction {
     private void commitWithPackage(Project project, VirtualFile moduleRoot, VirtualFile[] files, String comments) throws Exception {
 
         // --- 🔴 修改开始：使用 BapConnectionManager 获取连接 ---
-        // 1. 手动读取配置获取连接信息
-        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
-        String content = Files.readString(confFile.toPath());
-        String uri = extractAttr(content, "Uri");
-        String user = extractAttr(content, "User");
-        String pwd = extractAttr(content, "Password");
+        // 1. 读取配置获取连接信息 (配置已缓存)
+        BapDevelopConfig config = BapConfigService.getInstance(project).requireConfig(moduleRoot);
+        String uri = config.uri;
+        String user = config.user;
+        String pwd = config.password;
 
         // 2. 获取共享的长连接客户端
         BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
         // --- 🔴 修改结束 ---
 
-        String projectUuid = getProjectUuid(moduleRoot);
+        String projectUuid = config.projectUuid;
 
         List<CJavaFolderDto> folders = client.getService().getFolders(projectUuid);
 
@@ -168,6 +161,8 @@ public class CommitFileAction extends AnAction {
         pkg.setDeleteFileMap(deleteFileMap);
 
         client.getService().commitCode(projectUuid, pkg);
+        // 云端 MD5 已变化，缓存的云端清单失效
+        BapManifestCache.getInstance(project).invalidateModule(moduleRoot.getPath());
 
         // 🔴 修改：传入 moduleRoot
         onSuccess(project, files, moduleRoot);
@@ -204,7 +199,8 @@ public class CommitFileAction extends AnAction {
         }
 
         // 2. 新增/修改逻辑
-        byte[] content = file.contentsToByteArray();
+        // 未保存的文档直接取内存中的内容
+        byte[] content = BapUtils.contentsToByteArray(file);
         CResFileDto dto = new CResFileDto();
         dto.setFilePackage(relativePath);
         dto.setFileName(file.getName());
@@ -256,7 +252,7 @@ public class CommitFileAction extends AnAction {
         int lastDot = fullClassName.lastIndexOf('.');
         code.setJavaPackage((lastDot > 0) ? fullClassName.substring(0, lastDot) : "");
 
-        String content = new String(file.contentsToByteArray(), StandardCharsets.UTF_8);
+        String content = BapUtils.loadText(file);
         code.setCode(content);
 
         String ownerUuid = findFolderUuid(folders, folderName);
@@ -318,9 +314,6 @@ public class CommitFileAction extends AnAction {
                 }
             }
 
-            PsiManager.getInstance(project).dropPsiCaches();
-            FileStatusManager.getInstance(project).fileStatusesChanged();
-
             // 🔴 新增：设置自动聚焦
             project.putUserData(BapChangesTreePanel.LAST_BAP_MODULE_ROOT, moduleRoot);
 
@@ -351,12 +344,6 @@ public class CommitFileAction extends AnAction {
         return folders.stream().filter(f -> f.getName().equals(name)).map(CJavaFolderDto::getUuid).findFirst().orElse(null);
     }
 
-    private String getProjectUuid(VirtualFile moduleRoot) throws Exception {
-        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
-        String content = Files.readString(confFile.toPath());
-        return extractAttr(content, "Project");
-    }
-
     private VirtualFile findResDir(VirtualFile moduleRoot) {
         VirtualFile resDir = moduleRoot.findFileByRelativePath("res");
         if (resDir != null) return resDir;
@@ -445,12 +432,6 @@ public class CommitFileAction extends AnAction {
         return null;
     }
 
-    private String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
-    }
-
     private void showError(String msg) {
         ApplicationManager.getApplication().invokeLater(() -> Messages.showErrorDialog(msg, BapBundle.message("notification.error_title")));
     }
@@ -27,11 +27,9 @@ import com.intellij.psi.PsiJavaFile;
 import com.intellij.psi.PsiManager;
 import org.jetbrains.annotations.NotNull;
 import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapConfigService;
+import com.bap.dev.service.BapDevelopConfig;
 
-import java.io.File;
-import java.nio.file.Files;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class CompareJavaCodeAction extends AnAction {
 
@@ -71,14 +69,13 @@ public class CompareJavaCodeAction extends AnAction {
     }
 
     private void fetchAndDiff(Project project, VirtualFile moduleRoot, String fullClassName, VirtualFile localFile) {
-        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
         String uri = null, user = null, pwd = null, projectUuid = null;
         try {
-            String content = Files.readString(confFile.toPath());
-            uri = extractAttr(content, "Uri");
-            user = extractAttr(content, "User");
-            pwd = extractAttr(content, "Password");
-            projectUuid = extractAttr(content, "Project");
+            BapDevelopConfig config = BapConfigService.getInstance(project).requireConfig(moduleRoot);
+            uri = config.uri;
+            user = config.user;
+            pwd = config.password;
+            projectUuid = config.projectUuid;
         } catch (Exception e) {
             showError(project, BapBundle.message("error.read_config", e.getMessage()));
             return;
@@ -225,12 +222,6 @@ public class CompareJavaCodeAction extends AnAction {
         return null;
     }
 
-    private String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
-    }
-
     private String getFieldString(Object obj, String fieldName) {
         try {
             java.lang.reflect.Field field = obj.getClass().getField(fieldName);
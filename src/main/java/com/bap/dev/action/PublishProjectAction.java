@@ -3,7 +3,9 @@ package com.bap.dev.action;
 import bap.java.CJavaConst;
 import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapConfigService;
 import com.bap.dev.service.BapConnectionManager;
+import com.bap.dev.service.BapDevelopConfig;
 import com.bap.dev.settings.BapSettingsState;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationType;
@@ -22,10 +24,6 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.leavay.common.util.ToolUtilities;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
-import java.nio.file.Files;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class PublishProjectAction extends AnAction {
 
@@ -57,14 +55,13 @@ public class PublishProjectAction extends AnAction {
 
     private void performPublish(Project project, VirtualFile moduleRoot, ProgressIndicator indicator) {
         // 1. 读取配置
-        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
         String uri = null, user = null, pwd = null, projectUuid = null;
         try {
-            String content = Files.readString(confFile.toPath());
-            uri = extractAttr(content, "Uri");
-            user = extractAttr(content, "User");
-            pwd = extractAttr(content, "Password");
-            projectUuid = extractAttr(content, "Project");
+            BapDevelopConfig config = BapConfigService.getInstance(project).requireConfig(moduleRoot);
+            uri = config.uri;
+            user = config.user;
+            pwd = config.password;
+            projectUuid = config.projectUuid;
         } catch (Exception e) {
             showError(BapBundle.message("error.read_config", e.getMessage())); // "读取配置失败: " + e.getMessage()
             return;
@@ -75,11 +72,10 @@ public class PublishProjectAction extends AnAction {
             return;
         }
 
-        BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
         try {
             indicator.setIndeterminate(true);
             indicator.setText(BapBundle.message("progress.connecting")); // "Connecting to server..." -> "Connecting..." (复用)
-            client.connect(uri, user, pwd);
+            BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
 
             // 读取全局配置: "发布时自动编译"
             boolean compileOnPublish = BapSettingsState.getInstance().compileOnPublish;
@@ -112,8 +108,6 @@ public class PublishProjectAction extends AnAction {
                     BapBundle.message("action.PublishProjectAction.notification.fail_title"), // "发布失败或存在编译报错"
                     ToolUtilities.getFullExceptionStack(e)
             );
-        } finally {
-            client.shutdown();
         }
     }
 
@@ -140,12 +134,6 @@ public class PublishProjectAction extends AnAction {
         return null;
     }
 
-    private String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
-    }
-
     private void showError(String msg) {
         ApplicationManager.getApplication().invokeLater(() ->
                 // 修改11: Error Dialog Title
@@ -1,16 +1,13 @@
 package com.bap.dev.action;
 
 import bap.java.CJavaConst; // 引入常量定义 .develop 文件名
-import com.bap.dev.handler.ProjectRefresher;
 import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapRefreshScheduler;
 import com.bap.dev.util.BapUtils;
 import com.intellij.openapi.actionSystem.ActionUpdateThread;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
-import com.intellij.openapi.progress.ProgressIndicator;
-import com.intellij.openapi.progress.ProgressManager;
-import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -28,13 +25,8 @@ public class RefreshProjectAction extends AnAction {
         VirtualFile moduleRoot = BapUtils.findModuleRoot(selectedFile);
 
         if (moduleRoot != null) {
-            ProgressManager.getInstance().run(new Task.Backgroundable(project, BapBundle.message("progress.refresh_module"), true) { // "Refreshing Bap Module..."
-                //                @Override
-                public void run(@NotNull ProgressIndicator indicator) {
-                    // 🔴 修改：传入 false，表示这是手动操作，需要弹窗报错
-                    new ProjectRefresher(project).refreshModule(moduleRoot, false);
-                }
-            });
+            // 🔴 修改：传入 false，表示这是手动操作，需要弹窗报错
+            BapRefreshScheduler.getInstance(project).scheduleRefresh(moduleRoot, false);
         } else {
             Messages.showWarningDialog(
                     BapBundle.message("warning.no_develop_config"), // "未找到模块配置文件 (.develop)。"
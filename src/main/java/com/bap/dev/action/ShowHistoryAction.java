@@ -4,7 +4,9 @@ import bap.java.CJavaConst;
 import bap.md.ver.VersionNode;
 import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapConfigService;
 import com.bap.dev.service.BapConnectionManager;
+import com.bap.dev.service.BapDevelopConfig;
 import com.bap.dev.ui.HistoryListDialog;
 import com.intellij.openapi.actionSystem.ActionUpdateThread;
 import com.intellij.openapi.actionSystem.AnAction;
@@ -26,10 +28,7 @@ import com.intellij.psi.PsiManager;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.nio.file.Files;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class ShowHistoryAction extends AnAction {
 
@@ -98,14 +97,13 @@ public class ShowHistoryAction extends AnAction {
     }
 
     private void queryHistory(Project project, VirtualFile moduleRoot, String remoteKey, VirtualFile localFile) {
-        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
         String uri = null, user = null, pwd = null, projectUuid = null;
         try {
-            String content = Files.readString(confFile.toPath());
-            uri = extractAttr(content, "Uri");
-            user = extractAttr(content, "User");
-            pwd = extractAttr(content, "Password");
-            projectUuid = extractAttr(content, "Project");
+            BapDevelopConfig config = BapConfigService.getInstance(project).requireConfig(moduleRoot);
+            uri = config.uri;
+            user = config.user;
+            pwd = config.password;
+            projectUuid = config.projectUuid;
         } catch (Exception e) {
             showError(BapBundle.message("error.read_config", e.getMessage())); // "读取配置失败: " + e.getMessage()
             return;
@@ -118,7 +116,6 @@ public class ShowHistoryAction extends AnAction {
 
         BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
         try {
-            client.connect(uri, user, pwd);
 
             // 调用查询接口 (Java类名 和 资源路径 均通过此接口查询)
             List<VersionNode> historyList = client.getService().queryFileHistory(projectUuid, remoteKey);
@@ -143,8 +140,6 @@ public class ShowHistoryAction extends AnAction {
         } catch (Exception e) {
             e.printStackTrace();
             showError(BapBundle.message("action.ShowHistoryAction.error.query_failed", e.getMessage())); // "查询历史失败: " + e.getMessage()
-        } finally {
-            client.shutdown();
         }
     }
 
@@ -160,12 +155,6 @@ public class ShowHistoryAction extends AnAction {
         return null;
     }
 
-    private String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
-    }
-
     private void showError(String msg) {
         ApplicationManager.getApplication().invokeLater(() ->
                 Messages.showErrorDialog(msg, BapBundle.message("title.history_error"))); // "历史记录错误"
@@ -4,7 +4,9 @@ import bap.java.CJavaConst;
 import bap.md.ver.VersionNode;
 import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapConfigService;
 import com.bap.dev.service.BapConnectionManager;
+import com.bap.dev.service.BapDevelopConfig;
 import com.bap.dev.ui.ProjectHistoryDialog;
 import com.intellij.openapi.actionSystem.ActionUpdateThread;
 import com.intellij.openapi.actionSystem.AnAction;
@@ -20,10 +22,7 @@ import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.nio.file.Files;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class ShowProjectHistoryAction extends AnAction {
 
@@ -52,14 +51,13 @@ public class ShowProjectHistoryAction extends AnAction {
     }
 
     private void loadAndShowHistory(Project project, VirtualFile moduleRoot, ProgressIndicator indicator) {
-        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
         String uri = null, user = null, pwd = null, projectUuid = null;
         try {
-            String content = Files.readString(confFile.toPath());
-            uri = extractAttr(content, "Uri");
-            user = extractAttr(content, "User");
-            pwd = extractAttr(content, "Password");
-            projectUuid = extractAttr(content, "Project");
+            BapDevelopConfig config = BapConfigService.getInstance(project).requireConfig(moduleRoot);
+            uri = config.uri;
+            user = config.user;
+            pwd = config.password;
+            projectUuid = config.projectUuid;
         } catch (Exception e) {
             showError(BapBundle.message("error.read_config", e.getMessage())); // "读取配置失败: " + e.getMessage()
             return;
@@ -70,11 +68,10 @@ public class ShowProjectHistoryAction extends AnAction {
             return;
         }
 
-        BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
         try {
             indicator.setIndeterminate(true);
             indicator.setText(BapBundle.message("progress.connecting")); // "Connecting..."
-            client.connect(uri, user, pwd);
+            BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
 
             indicator.setText(BapBundle.message("action.ShowProjectHistoryAction.progress.fetching")); // "Fetching project version list..."
 
@@ -101,17 +98,9 @@ public class ShowProjectHistoryAction extends AnAction {
         } catch (Exception e) {
             e.printStackTrace();
             showError(BapBundle.message("action.ShowProjectHistoryAction.error.fetch_failed", e.getMessage())); // "获取历史失败: " + e.getMessage()
-        } finally {
-            client.shutdown();
         }
     }
 
-    private String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
-    }
-
     private void showError(String msg) {
         ApplicationManager.getApplication().invokeLater(() -> Messages.showErrorDialog(msg, BapBundle.message("title.history_error")));
     }
@@ -5,6 +5,8 @@ import bap.java.CJavaConst;
 import bap.java.CJavaDebuggerDto;
 import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapConfigService;
+import com.bap.dev.service.BapDevelopConfig;
 import com.intellij.execution.ExecutionManager;
 import com.intellij.execution.executors.DefaultRunExecutor;
 import com.intellij.execution.filters.TextConsoleBuilderFactory;
@@ -34,12 +36,9 @@ import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.File;
 import java.net.URI;
-import java.nio.file.Files;
 import java.util.List;
 import java.util.UUID;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class StartDebugAction extends AnAction {
@@ -77,7 +76,7 @@ public class StartDebugAction extends AnAction {
         if (vFile == null) return;
 
         // 1. 获取连接配置 (配置通常不会变，可以在这里获取一次)
-        String[] config = findConfig(vFile);
+        String[] config = findConfig(project, vFile);
         if (config == null) {
             Messages.showWarningDialog(
                     BapBundle.message("warning.no_develop_config"),
@@ -305,17 +304,16 @@ public class StartDebugAction extends AnAction {
         return consoleView;
     }
 
-    private String[] findConfig(VirtualFile current) {
+    private String[] findConfig(Project project, VirtualFile current) {
         VirtualFile dir = current.getParent();
         while (dir != null) {
             VirtualFile configFile = dir.findChild(CJavaConst.PROJECT_DEVELOP_CONF_FILE);
             if (configFile != null && configFile.exists()) {
                 try {
-                    File file = new File(configFile.getPath());
-                    String content = Files.readString(file.toPath());
-                    String uri = extractAttr(content, "Uri");
-                    String user = extractAttr(content, "User");
-                    String pwd = extractAttr(content, "Password");
+                    BapDevelopConfig config = BapConfigService.getInstance(project).getConfig(dir);
+                    String uri = config != null ? config.uri : null;
+                    String user = config != null ? config.user : null;
+                    String pwd = config != null ? config.password : null;
                     if (uri != null && user != null) {
                         return new String[]{uri, user, pwd != null ? pwd : ""};
                     }
@@ -328,12 +326,6 @@ public class StartDebugAction extends AnAction {
         return null;
     }
 
-    private String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
-    }
-
     private void printResult(ConsoleView console, String debugKey, CJavaDebuggerDto dto, boolean isException, Object result, String resultText, List<String> traces) {
         ApplicationManager.getApplication().invokeLater(() -> {
             console.print(BapBundle.message("action.StartDebugAction.console.finish_header"), ConsoleViewContentType.LOG_INFO_OUTPUT);
@@ -3,12 +3,13 @@ package com.bap.dev.action;
 import bap.java.CJavaCode;
 import bap.java.CJavaConst;
 import com.bap.dev.BapRpcClient;
-import com.bap.dev.handler.ProjectRefresher;
 import com.bap.dev.i18n.BapBundle;
-import com.bap.dev.listener.BapChangesNotifier;
+import com.bap.dev.service.BapConfigService;
 import com.bap.dev.service.BapConnectionManager;
+import com.bap.dev.service.BapDevelopConfig;
 import com.bap.dev.service.BapFileStatus;
 import com.bap.dev.service.BapFileStatusService;
+import com.bap.dev.service.BapRefreshScheduler;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationType;
 import com.intellij.notification.Notifications;
@@ -20,6 +21,7 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.application.WriteAction;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
@@ -41,8 +43,6 @@ import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.openapi.fileTypes.FileTypeManager;
 import com.intellij.testFramework.LightVirtualFile;
@@ -72,8 +72,7 @@ public class UpdateAllAction extends AnAction {
                 try {
                     indicator.setIndeterminate(true);
                     indicator.setText(BapBundle.message("progress.refresh_module")); // "Refreshing module status..."
-                    ProjectRefresher refresher = new ProjectRefresher(project);
-                    refresher.refreshModule(moduleRoot);
+                    BapRefreshScheduler.getInstance(project).refreshAndWait(moduleRoot, true);
 
                     indicator.setText(BapBundle.message("progress.collect_changes")); // "Collecting changes..."
                     List<VirtualFile> changedFiles = collectChangedFiles(project, moduleRoot);
@@ -89,6 +88,8 @@ public class UpdateAllAction extends AnAction {
                         }
                     });
 
+                } catch (ProcessCanceledException ex) {
+                    throw ex;
                 } catch (Exception ex) {
                     ex.printStackTrace();
                     showError(BapBundle.message("action.UpdateAllAction.error.prepare_failed", ex.getMessage())); // "准备更新失败: " + ex.getMessage()
@@ -107,12 +108,11 @@ public class UpdateAllAction extends AnAction {
                 int failCount = 0;
 
                 try {
-                    File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
-                    String content = Files.readString(confFile.toPath());
-                    String uri = extractAttr(content, "Uri");
-                    String user = extractAttr(content, "User");
-                    String pwd = extractAttr(content, "Password");
-                    String projectUuid = extractAttr(content, "Project");
+                    BapDevelopConfig config = BapConfigService.getInstance(project).requireConfig(moduleRoot);
+                    String uri = config.uri;
+                    String user = config.user;
+                    String pwd = config.password;
+                    String projectUuid = config.projectUuid;
 
                     indicator.setText(BapBundle.message("progress.connecting")); // "Connecting..."
                     client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
@@ -150,10 +150,9 @@ public class UpdateAllAction extends AnAction {
                 } catch (Exception ex) {
                     showError(BapBundle.message("action.UpdateAllAction.error.batch_interrupt", ex.getMessage())); // "批量更新中断: " + ex.getMessage()
                 } finally {
-                    ApplicationManager.getApplication().invokeLater(() -> {
-                        new ProjectRefresher(project).refreshModule(moduleRoot);
-                        project.getMessageBus().syncPublisher(BapChangesNotifier.TOPIC).onChangesUpdated();
-                    });
+                    // 更新完成后在后台重新刷新模块状态 (不再占用 UI 线程)
+                    // 刷新完成后由 ProjectRefresher 发送 onChangesUpdated，状态变化本身通过状态增量通知界面
+                    BapRefreshScheduler.getInstance(project).scheduleRefresh(moduleRoot, true);
                 }
             }
         });
@@ -285,18 +284,17 @@ public class UpdateAllAction extends AnAction {
     }
 
     // ... 辅助方法 (保持不变，请务必复制) ...
-    // collectChangedFiles, showConfirmDialog, findModuleRoot, extractAttr, showError, showInfo, sendNotification, update, getActionUpdateThread, isResourceFile, getResourceRelativePath, resolveClassName
+    // collectChangedFiles, showConfirmDialog, findModuleRoot, showError, showInfo, sendNotification, update, getActionUpdateThread, isResourceFile, getResourceRelativePath, resolveClassName
 
     private List<VirtualFile> collectChangedFiles(Project project, VirtualFile moduleRoot) {
         BapFileStatusService statusService = BapFileStatusService.getInstance(project);
         List<VirtualFile> result = new ArrayList<>();
-        Map<String, BapFileStatus> allStatuses = statusService.getAllStatuses();
+        // 只取该模块分区中的状态，不扫描其他模块
+        Map<String, BapFileStatus> moduleStatuses = statusService.getModuleStatuses(moduleRoot.getPath());
 
-        for (Map.Entry<String, BapFileStatus> entry : allStatuses.entrySet()) {
+        for (Map.Entry<String, BapFileStatus> entry : moduleStatuses.entrySet()) {
             String path = entry.getKey();
             BapFileStatus status = entry.getValue();
-            if (status == BapFileStatus.NORMAL) continue;
-            if (!path.startsWith(moduleRoot.getPath())) continue;
 
             VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
             if (file != null) {
@@ -345,12 +343,6 @@ public class UpdateAllAction extends AnAction {
         return null;
     }
 
-    private String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
-    }
-
     private void showError(String msg) {
         ApplicationManager.getApplication().invokeLater(() -> Messages.showErrorDialog(msg, BapBundle.message("title.update_error")));
     }
@@ -5,7 +5,9 @@ import bap.java.CJavaConst;
 import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
 import com.bap.dev.listener.BapChangesNotifier;
+import com.bap.dev.service.BapConfigService;
 import com.bap.dev.service.BapConnectionManager;
+import com.bap.dev.service.BapDevelopConfig;
 import com.bap.dev.service.BapFileStatus;
 import com.bap.dev.service.BapFileStatusService;
 import com.intellij.notification.Notification;
@@ -24,7 +26,6 @@ import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
-import com.intellij.openapi.vcs.FileStatusManager;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
@@ -36,8 +37,6 @@ import org.jetbrains.annotations.NotNull;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class UpdateFileAction extends AnAction {
 
@@ -109,8 +108,6 @@ public class UpdateFileAction extends AnAction {
                     final int finalSuccess = successCount;
                     final int finalFail = failCount;
                     ApplicationManager.getApplication().invokeLater(() -> {
-                        PsiManager.getInstance(project).dropPsiCaches();
-                        FileStatusManager.getInstance(project).fileStatusesChanged();
                         project.getMessageBus().syncPublisher(BapChangesNotifier.TOPIC).onChangesUpdated();
 
                         String msg = BapBundle.message("action.UpdateFileAction.notification.finish_msg", finalSuccess, finalFail); // "批量更新完成。成功: " + finalSuccess + ", 失败: " + finalFail
@@ -129,14 +126,13 @@ public class UpdateFileAction extends AnAction {
         String relativePath = getResourceRelativePath(moduleRoot, file);
         if (relativePath == null) throw new Exception(BapBundle.message("action.UpdateFileAction.error.calc_path"));
 
-        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
-        String content = Files.readString(confFile.toPath());
-        String uri = extractAttr(content, "Uri");
-        String user = extractAttr(content, "User");
-        String pwd = extractAttr(content, "Password");
+        BapDevelopConfig config = BapConfigService.getInstance(project).requireConfig(moduleRoot);
+        String uri = config.uri;
+        String user = config.user;
+        String pwd = config.password;
 
         BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
-        String projectUuid = getProjectUuid(moduleRoot);
+        String projectUuid = config.projectUuid;
 
         // 🔴 修复：确保查询路径以 "/" 开头，否则服务器可能找不到文件 (针对红D恢复)
         String queryPath = relativePath.startsWith("/") ? relativePath : "/" + relativePath;
@@ -161,17 +157,16 @@ public class UpdateFileAction extends AnAction {
         String fullClassName = resolveClassName(project, file);
         if (fullClassName == null) throw new Exception(BapBundle.message("action.UpdateFileAction.error.resolve_class")); // "无法解析类名"
 
-        // --- 🔴 修改开始：手动读取配置并使用 BapConnectionManager ---
-        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
-        String content = Files.readString(confFile.toPath());
-        String uri = extractAttr(content, "Uri");
-        String user = extractAttr(content, "User");
-        String pwd = extractAttr(content, "Password");
+        // --- 🔴 修改开始：读取缓存的配置并使用 BapConnectionManager ---
+        BapDevelopConfig config = BapConfigService.getInstance(project).requireConfig(moduleRoot);
+        String uri = config.uri;
+        String user = config.user;
+        String pwd = config.password;
 
         BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
         // --- 🔴 修改结束 ---
 
-        String projectUuid = getProjectUuid(moduleRoot);
+        String projectUuid = config.projectUuid;
 
         Object remoteObj = client.getService().getJavaCode(projectUuid, fullClassName);
         String codeContent = null;
@@ -253,12 +248,6 @@ public class UpdateFileAction extends AnAction {
     }
 
 
-    private String getProjectUuid(VirtualFile moduleRoot) throws Exception {
-        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
-        String content = Files.readString(confFile.toPath());
-        return extractAttr(content, "Project");
-    }
-
     // --- 🔴 新增：字符串路径辅助方法 ---
     private String getResDirPath(VirtualFile moduleRoot) {
         return moduleRoot.getPath().replace('\\', '/') + "/src/res";
@@ -338,12 +327,6 @@ public class UpdateFileAction extends AnAction {
         return null;
     }
 
-    private String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
-    }
-
     private String getFieldString(Object obj, String fieldName) {
         try {
             java.lang.reflect.Field field = obj.getClass().getField(fieldName);
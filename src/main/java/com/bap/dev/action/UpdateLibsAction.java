@@ -5,6 +5,8 @@ import com.bap.dev.BapRpcClient;
 import com.bap.dev.handler.LibConfigurator;
 import com.bap.dev.handler.LibDownloader;
 import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapConfigService;
+import com.bap.dev.service.BapDevelopConfig;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationType;
 import com.intellij.notification.Notifications;
@@ -22,9 +24,6 @@ import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.nio.file.Files;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class UpdateLibsAction extends AnAction {
 
@@ -54,16 +53,15 @@ public class UpdateLibsAction extends AnAction {
     }
 
     private void updateLibraries(Project project, VirtualFile moduleRoot, ProgressIndicator indicator) {
-        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
         String uri = null, user = null, pwd = null, projectUuid = null;
 
         try {
             // 简单读取配置
-            String content = new String(Files.readAllBytes(confFile.toPath()), "UTF-8");
-            uri = extractAttr(content, "Uri");
-            user = extractAttr(content, "User");
-            pwd = extractAttr(content, "Password");
-            projectUuid = extractAttr(content, "Project");
+            BapDevelopConfig config = BapConfigService.getInstance(project).requireConfig(moduleRoot);
+            uri = config.uri;
+            user = config.user;
+            pwd = config.password;
+            projectUuid = config.projectUuid;
         } catch (Exception e) {
             showError(BapBundle.message("error.read_config", e.getMessage())); // "读取配置失败: " + e.getMessage()
             return;
@@ -101,7 +99,7 @@ public class UpdateLibsAction extends AnAction {
         }
     }
 
-    // ... 通用辅助方法 (findModuleRoot, extractAttr, showError, sendNotification) ...
+    // ... 通用辅助方法 (findModuleRoot, showError, sendNotification) ...
     // 请复制之前 Action 中已有的这些方法
 
     private VirtualFile findModuleRoot(VirtualFile current) {
@@ -114,12 +112,6 @@ public class UpdateLibsAction extends AnAction {
         return null;
     }
 
-    private String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
-    }
-
     private void showError(String msg) {
         ApplicationManager.getApplication().invokeLater(() ->
                 // 修改9: Error Dialog Title
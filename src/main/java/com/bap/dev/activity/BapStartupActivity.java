@@ -1,12 +1,10 @@
 package com.bap.dev.activity;
 
-import com.bap.dev.handler.ProjectRefresher;
-import com.bap.dev.i18n.BapBundle;
 import com.bap.dev.listener.BapDocumentListener;
+import com.bap.dev.service.BapFileStatusService;
+import com.bap.dev.service.BapRefreshScheduler;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.EditorFactory;
-import com.intellij.openapi.progress.ProgressIndicator;
-import com.intellij.openapi.progress.ProgressManager;
-import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.startup.StartupActivity;
 import org.jetbrains.annotations.NotNull;
@@ -20,12 +18,13 @@ public class BapStartupActivity implements StartupActivity {
         BapDocumentListener listener = new BapDocumentListener(project);
         EditorFactory.getInstance().getEventMulticaster().addDocumentListener(listener, project);
 
-        // 2. 启动后台任务刷新所有模块
-        ProgressManager.getInstance().run(new Task.Backgroundable(project, BapBundle.message("progress.refresh_module"), true) {
-            @Override
-            public void run(@NotNull ProgressIndicator indicator) {
-                new ProjectRefresher(project).refreshAllModules();
-            }
+        // 2. 在后台恢复上次关闭时保存的状态，Bap Changes 不必等待刷新完成 (读取快照不阻塞启动)
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            if (project.isDisposed()) return;
+            BapFileStatusService.getInstance(project).loadSnapshot();
+
+            // 3. 恢复后再刷新所有模块 (由刷新调度在后台执行)，只发布与恢复的状态不同的部分
+            BapRefreshScheduler.getInstance(project).scheduleRefreshAll();
         });
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.bap.dev.handler;
 
 import bap.java.CJavaConst;
 import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapConfigService;
+import com.bap.dev.service.BapDevelopConfig;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.configurations.JavaParameters;
 import com.intellij.execution.process.OSProcessHandler;
@@ -27,29 +29,23 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.net.URI; // 引入 URI 类
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class AdminToolLauncher {
 
     private static final Logger LOG = Logger.getInstance(AdminToolLauncher.class);
 
     public static void launch(Project project, VirtualFile moduleRoot) {
-        File confFile = new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
-        if (!confFile.exists()) {
-            showError(project, BapBundle.message("warning.no_develop_config", confFile.getName())); // "未找到配置文件: " + confFile.getName()
-            return;
-        }
-
         try {
             // 1. 读取配置
-            String content = new String(Files.readAllBytes(confFile.toPath()), StandardCharsets.UTF_8);
-            String uriStr = extractAttr(content, "Uri"); // 比如 ws://127.0.0.1:2020
-            String user = extractAttr(content, "User");
-            String pwd = extractAttr(content, "Password");
-            String adminTool = extractAttr(content, "AdminTool");
+            BapDevelopConfig config = BapConfigService.getInstance(project).getConfig(moduleRoot);
+            if (config == null) {
+                showError(project, BapBundle.message("warning.no_develop_config", CJavaConst.PROJECT_DEVELOP_CONF_FILE)); // "未找到配置文件: .develop"
+                return;
+            }
+            String uriStr = config.uri; // 比如 ws://127.0.0.1:2020
+            String user = config.user;
+            String pwd = config.password;
+            String adminTool = config.adminTool;
 
             if (adminTool == null || adminTool.isEmpty()) {
                 adminTool = "bap.client.BapMainFrame";
@@ -179,12 +175,6 @@ public class AdminToolLauncher {
         params.getClassPath().add(wildcard);
     }
 
-    private static String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
-    }
-
     private static void showError(Project project, String msg) {
         ApplicationManager.getApplication().invokeLater(() -> Messages.showErrorDialog(msg, BapBundle.message("action.AdminToolLauncher.title.error"))); // "Launcher Error"
     }
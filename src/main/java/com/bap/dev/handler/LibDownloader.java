@@ -5,6 +5,7 @@ import bap.java.CJavaConst;
 import bap.java.FileUpdatePackage;
 import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.util.BapHashUtils;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.leavay.common.util.ProgressCtrl.ProgressControllerFEIntf;
 import com.leavay.common.util.ProgressCtrl.crpc.CProgressProxy;
@@ -17,7 +18,6 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -256,12 +256,7 @@ public class LibDownloader {
 
     private String calculateMD5(File file) {
         try {
-            byte[] b = Files.readAllBytes(file.toPath());
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] hash = md.digest(b);
-            StringBuilder hex = new StringBuilder();
-            for (byte v : hash) hex.append(String.format("%02X", v));
-            return hex.toString();
+            return BapHashUtils.md5(file);
         } catch (Exception e) { return ""; }
     }
 
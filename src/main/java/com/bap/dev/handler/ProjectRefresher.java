@@ -3,75 +3,73 @@ package com.bap.dev.handler;
 import bap.dev.FileDto;
 import bap.dev.JavaDto;
 import bap.java.CJavaCode;
-import bap.java.CJavaConst;
 import bap.java.NoFolderException;
+import bap.md.ver.VersionNode;
 import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
 import com.bap.dev.listener.BapChangesNotifier;
+import com.bap.dev.service.BapConfigService;
 import com.bap.dev.service.BapConnectionManager;
+import com.bap.dev.service.BapDevelopConfig;
 import com.bap.dev.service.BapFileStatus;
 import com.bap.dev.service.BapFileStatusService;
+import com.bap.dev.service.BapHashCache;
+import com.bap.dev.service.BapManifestCache;
+import com.bap.dev.service.BapRefreshScheduler;
+import com.bap.dev.settings.BapSettingsState;
 import com.bap.dev.ui.BapChangesTreePanel;
-import com.intellij.ide.projectView.ProjectView;
+import com.bap.dev.util.BapHashUtils;
+import com.bap.dev.util.BapUtils;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.WriteAction;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileTypes.FileTypeManager;
-import com.intellij.openapi.module.Module;
-import com.intellij.openapi.module.ModuleManager; // 引入
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ModuleRootManager; // 引入
 import com.intellij.openapi.ui.Messages;
-import com.intellij.openapi.vcs.FileStatusManager;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileVisitor;
-import com.intellij.psi.PsiManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.leavay.common.util.ToolUtilities;
 import cplugin.ms.dto.CResFileDto;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 public class ProjectRefresher {
 
     private final Project project;
+    private final BapHashCache hashCache;
     private static final Logger LOG = Logger.getInstance(ProjectRefresher.class);
 
+    // 并行刷新时同时进行的目录数上限
+    private static final int FOLDER_PARALLELISM = 4;
+
     public ProjectRefresher(Project project) {
         this.project = project;
-    }
-
-    /**
-     * 新增：刷新项目中的所有 Bap 模块
-     */
-    public void refreshAllModules() {
-        if (project.isDisposed()) return;
-
-        Module[] modules = ModuleManager.getInstance(project).getModules();
-        for (Module module : modules) {
-            // 获取模块的 Content Roots
-            VirtualFile[] contentRoots = ModuleRootManager.getInstance(module).getContentRoots();
-            for (VirtualFile root : contentRoots) {
-                // 只要根目录下有 .develop 文件，就认为是 Bap 模块
-                if (root.findChild(CJavaConst.PROJECT_DEVELOP_CONF_FILE) != null) {
-                    LOG.info(BapBundle.message("handler.ProjectRefresher.log.auto_refresh", module.getName())); // "Auto-refreshing module: " + module.getName()
-                    refreshModule(root, true);
-                    // 一个模块刷新一次即可 (假设只有一个根是 Bap 根)
-                    break;
-                }
-            }
-        }
+        this.hashCache = BapHashCache.getInstance(project);
     }
 
     // 兼容旧代码的方法重载 (默认为静默，或者你可以根据调用点逐个修改)
@@ -85,25 +83,12 @@ public class ProjectRefresher {
      * @param silentMode 是否静默模式 (true=不弹窗报错, false=弹窗报错)
      */
     public void refreshModule(VirtualFile moduleDir, boolean silentMode) {
-        // 0. 保存文档
-        ApplicationManager.getApplication().invokeAndWait(() -> {
-            FileDocumentManager.getInstance().saveAllDocuments();
-        });
+        // 0. 不再保存文档：未保存的文档在计算 MD5 时直接使用内存中的内容
 
-        // 1. 读取配置
-        File confFile = new File(moduleDir.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE);
-        if (!confFile.exists()) {
-            // 配置文件不存在通常不用弹窗，因为可能是普通文件夹
-            return;
-        }
-
-        String uri = null, user = null, pwd = null, projectUuid = null;
+        // 1. 读取配置 (已解析的配置直接从缓存获取)
+        BapDevelopConfig config;
         try {
-            String content = Files.readString(confFile.toPath());
-            uri = extractAttr(content, "Uri");
-            user = extractAttr(content, "User");
-            pwd = extractAttr(content, "Password");
-            projectUuid = extractAttr(content, "Project");
+            config = BapConfigService.getInstance(project).getConfig(moduleDir);
         } catch (Exception e) {
             e.printStackTrace();
             // 🔴 配置文件损坏提示
@@ -114,7 +99,12 @@ public class ProjectRefresher {
             );
             return;
         }
+        if (config == null) {
+            // 配置文件不存在通常不用弹窗，因为可能是普通文件夹
+            return;
+        }
 
+        String uri = config.uri, user = config.user, pwd = config.password, projectUuid = config.projectUuid;
         if (uri == null || projectUuid == null) {
             // 🔴 关键信息缺失提示
             showError(
@@ -149,30 +139,50 @@ public class ProjectRefresher {
 
             BapFileStatusService statusService = BapFileStatusService.getInstance(project);
 
-            // 3. 遍历 src 下的子目录
+            // 3. 🔴 查询云端最新版本号：版本未变化的目录直接复用缓存的清单，跳过大清单的传输
+            // 版本号要下载整个版本列表，没有任何可复用的清单时 (如启动后第一次刷新) 不查询
+            String remoteVersion = hasCachedManifest(srcDir, projectUuid) ? queryRemoteVersion(client, projectUuid) : null;
+            // 刷新可能已被新的请求取代 (见 BapRefreshScheduler)
+            ProgressManager.checkCanceled();
+
+            // 4. 遍历 src 下的子目录：所有目录的查询一次性发出，由有界线程池并发执行
+            int parallelism = BapSettingsState.getInstance().parallelRefresh ? FOLDER_PARALLELISM : 1;
+            // 远程查询与本地扫描使用两个独立的线程池，避免扫描任务占满线程后等待排队中的查询而死锁
+            ExecutorService rpcExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Bap Refresh RPC", parallelism);
+            ExecutorService scanExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Bap Refresh Scan", parallelism);
+
+            final BapRpcClient finalClient = client;
+            final String finalProjectUuid = projectUuid;
+            final String finalVersion = remoteVersion;
+            List<CompletableFuture<FolderResult>> futures = new ArrayList<>();
             for (VirtualFile subDir : srcDir.getChildren()) {
                 if (subDir.isDirectory()) {
                     String folderName = subDir.getName();
                     if ("res".equals(folderName)) {
-                        refreshResFolder(client, projectUuid, subDir, statusService);
+                        futures.add(CompletableFuture.supplyAsync(() -> refreshResFolder(finalClient, finalProjectUuid, finalVersion, subDir, rpcExecutor), scanExecutor));
                     } else {
-                        refreshJavaFolder(client, projectUuid, subDir, statusService);
+                        futures.add(CompletableFuture.supplyAsync(() -> refreshJavaFolder(finalClient, finalProjectUuid, finalVersion, subDir, rpcExecutor), scanExecutor));
                     }
                 }
             }
 
-            // 4. 刷新 UI 并发送通知
-            ApplicationManager.getApplication().invokeLater(() -> {
-                PsiManager.getInstance(project).dropPsiCaches();
-                FileStatusManager.getInstance(project).fileStatusesChanged();
-                ProjectView.getInstance(project).refresh();
-
-                // 🔴 新增：设置最后刷新的模块，以便 TreePanel 自动选中
-                project.putUserData(BapChangesTreePanel.LAST_BAP_MODULE_ROOT, moduleDir);
+            // 5. 等待全部目录完成后一次性合并，界面不会看到“刷新了一半”的模块
+            List<String> refreshedDirs = new ArrayList<>();
+            Map<String, BapFileStatus> mergedStatuses = new HashMap<>();
+            for (CompletableFuture<FolderResult> future : futures) {
+                FolderResult result = joinCancellable(future, futures);
+                // 查询失败的目录保留原有状态
+                if (result == null) continue;
+                refreshedDirs.add(result.dir.getPath());
+                mergedStatuses.putAll(result.statuses);
+            }
+            statusService.replaceStatuses(refreshedDirs, mergedStatuses);
 
-                project.getMessageBus().syncPublisher(BapChangesNotifier.TOPIC).onChangesUpdated();
-            });
+            // 6. 刷新 UI 并发送通知
+            fireChangesUpdated(moduleDir);
 
+        } catch (ProcessCanceledException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             // 🔴 刷新过程中的其他异常
@@ -184,6 +194,165 @@ public class ProjectRefresher {
         }
     }
 
+    /**
+     * 🔴 新增：增量刷新指定文件的状态 (用于编辑/保存事件)
+     * 直接与最近一次全量刷新缓存的云端清单比对，云端 MD5 已知时不发起任何请求；
+     * 清单不存在 (从未刷新或已失效) 或已过时 (见 BapManifestCache.getFreshFolder) 时，
+     * 改为请求整个模块的全量刷新 (由刷新调度取代本次增量刷新)。
+     * 未保存的文档直接使用内存中的内容计算。
+     */
+    public void refreshFiles(Collection<VirtualFile> files) {
+        if (project.isDisposed()) return;
+
+        // 1. 按模块分组
+        Map<VirtualFile, List<VirtualFile>> filesByModule = new LinkedHashMap<>();
+        for (VirtualFile file : files) {
+            if (file == null || !file.isValid() || file.isDirectory() || isIgnored(file)) continue;
+            VirtualFile moduleRoot = BapUtils.findModuleRoot(project, file);
+            if (moduleRoot != null) {
+                filesByModule.computeIfAbsent(moduleRoot, k -> new ArrayList<>()).add(file);
+            }
+        }
+
+        BapManifestCache manifestCache = BapManifestCache.getInstance(project);
+        BapFileStatusService statusService = BapFileStatusService.getInstance(project);
+
+        for (Map.Entry<VirtualFile, List<VirtualFile>> entry : filesByModule.entrySet()) {
+            VirtualFile moduleRoot = entry.getKey();
+            VirtualFile srcDir = moduleRoot.findChild("src");
+            if (srcDir == null) continue;
+
+            // 需要请求服务器时才获取连接
+            Supplier<BapRpcClient> clientSupplier = new Supplier<>() {
+                private BapRpcClient client;
+
+                @Override
+                public synchronized BapRpcClient get() {
+                    if (client == null) client = connect(moduleRoot);
+                    return client;
+                }
+            };
+
+            Map<String, BapFileStatus> updates = new HashMap<>();
+            List<LooseCheck> looseChecks = new ArrayList<>();
+            String looseProjectUuid = null;
+            List<LocalFile> resChecks = new ArrayList<>();
+            BapManifestCache.FolderManifest resManifest = null;
+            boolean needFullRefresh = false;
+            for (VirtualFile file : entry.getValue()) {
+                VirtualFile folder = findSourceFolder(srcDir, file);
+                if (folder == null) continue;
+
+                BapManifestCache.FolderManifest manifest = manifestCache.getFreshFolder(folder.getPath());
+                if (manifest == null) {
+                    needFullRefresh = true;
+                    break;
+                }
+
+                String key = calculateKey(folder, file);
+                BapManifestCache.RemoteEntry remote = manifest.get(key);
+                if ("res".equals(folder.getName())) {
+                    LocalFile local = hashResourceFile(file, key);
+                    if (remote != null) {
+                        updates.put(file.getPath(), checkResourceModified(local, remote.md5));
+                    } else {
+                        resChecks.add(local);
+                        resManifest = manifest;
+                    }
+                } else if ("java".equalsIgnoreCase(file.getExtension())) {
+                    LocalFile local = hashJavaFile(file, key);
+                    BapFileStatus status = remote != null ? verifyModification(local, remote.md5, remote.fullClass) : BapFileStatus.ADDED;
+                    if (status != null) {
+                        updates.put(file.getPath(), status);
+                    } else {
+                        looseChecks.add(new LooseCheck(local, remote.md5, remote.fullClass));
+                        looseProjectUuid = manifest.projectUuid;
+                    }
+                }
+            }
+
+            if (needFullRefresh) {
+                // 全量刷新会取代本次增量刷新，在后台进度条中执行并可取消
+                BapRefreshScheduler.getInstance(project).scheduleRefresh(moduleRoot, true);
+                continue;
+            }
+
+            if (!looseChecks.isEmpty() || !resChecks.isEmpty()) {
+                ExecutorService rpcExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Bap Refresh RPC", FOLDER_PARALLELISM);
+                verifyLooseBatch(clientSupplier, looseProjectUuid, looseChecks, rpcExecutor, updates);
+                if (resManifest != null) {
+                    doubleCheckResourceBatch(clientSupplier, resManifest.projectUuid, resManifest.version, resChecks, rpcExecutor, updates);
+                }
+            }
+
+            boolean changed = false;
+            for (Map.Entry<String, BapFileStatus> update : updates.entrySet()) {
+                if (statusService.getStatus(update.getKey()) != update.getValue()) {
+                    statusService.setStatus(update.getKey(), update.getValue());
+                    changed = true;
+                }
+            }
+            if (changed) {
+                fireChangesUpdated(moduleRoot);
+            }
+        }
+    }
+
+    // 等待目录结果，期间刷新被取消时放弃所有未完成的目录并抛出 ProcessCanceledException
+    private <T> T joinCancellable(CompletableFuture<T> future, List<? extends CompletableFuture<?>> all) {
+        while (true) {
+            try {
+                return future.get(100, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                try {
+                    ProgressManager.checkCanceled();
+                } catch (ProcessCanceledException pce) {
+                    for (CompletableFuture<?> f : all) f.cancel(false);
+                    throw pce;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessCanceledException(e);
+            } catch (ExecutionException e) {
+                throw new CompletionException(e.getCause());
+            }
+        }
+    }
+
+    // 找到文件所在的 src 一级子目录 (如 src/main、src/res)，不在 src 下时返回 null
+    private VirtualFile findSourceFolder(VirtualFile srcDir, VirtualFile file) {
+        VirtualFile current = file.getParent();
+        while (current != null) {
+            VirtualFile parent = current.getParent();
+            if (srcDir.equals(parent)) return current;
+            current = parent;
+        }
+        return null;
+    }
+
+    // 增量刷新时按需读取配置并获取连接
+    private BapRpcClient connect(VirtualFile moduleDir) {
+        try {
+            BapDevelopConfig config = BapConfigService.getInstance(project).getConfig(moduleDir);
+            if (config == null) throw new IOException(BapBundle.message("warning.no_develop_config"));
+            return BapConnectionManager.getInstance(project).getSharedClient(config.uri, config.user, config.password);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void fireChangesUpdated(VirtualFile moduleDir) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (project.isDisposed()) return;
+            // 状态有变化的文件由 BapStatusUiUpdater 按增量逐个刷新，这里不再清空 PSI 缓存或刷新整棵项目树
+
+            // 🔴 新增：设置最后刷新的模块，以便 TreePanel 自动选中
+            project.putUserData(BapChangesTreePanel.LAST_BAP_MODULE_ROOT, moduleDir);
+
+            project.getMessageBus().syncPublisher(BapChangesNotifier.TOPIC).onChangesUpdated();
+        });
+    }
+
     // --- 🔴 辅助：判断是否为忽略文件 ---
     private boolean isIgnored(VirtualFile file) {
         // 1. 显式过滤 MacOS 垃圾文件
@@ -208,185 +377,382 @@ public class ProjectRefresher {
         }
     }
 
-    // ... (保持 refreshResFolder, refreshJavaFolder, doubleCheckResource 等所有辅助方法不变) ...
-    // 请直接复用之前的文件内容
+    // src 下是否有目录缓存了同一工程的清单
+    private boolean hasCachedManifest(VirtualFile srcDir, String projectUuid) {
+        BapManifestCache manifestCache = BapManifestCache.getInstance(project);
+        for (VirtualFile subDir : srcDir.getChildren()) {
+            BapManifestCache.FolderManifest manifest = manifestCache.getFolder(subDir.getPath());
+            if (manifest != null && projectUuid.equals(manifest.projectUuid)) return true;
+        }
+        return false;
+    }
 
-    // --- 资源文件刷新逻辑 ---
-    private void refreshResFolder(BapRpcClient client, String projectUuid, VirtualFile subDir, BapFileStatusService statusService) {
+    /**
+     * 查询云端最新版本号
+     * 服务端没有单独的版本号接口，只能通过 queryVersionList 下载整个版本列表计算，开销随版本数增长，
+     * 因此只在有缓存清单可以复用时调用，用于判断缓存的清单是否仍然有效
+     * @return 查询失败时返回 null (此时所有目录都会重新获取清单)
+     */
+    private String queryRemoteVersion(BapRpcClient client, String projectUuid) {
         try {
-            Map<String, FileDto> tempMap;
-            try {
-                tempMap = client.getService().queryAllFileMap(projectUuid, "res");
-            } catch (Exception ex) {
-                // 云端没有 res 目录：视为云端空目录，而不是刷新失败
-                Throwable exceptionRootCause = ToolUtilities.getExceptionRootCause(ex);
-                if (NoFolderException.class.equals(exceptionRootCause.getClass())) {
-                    tempMap = new HashMap<>();
-                } else {
-                    throw ex;
+            List<VersionNode> versionList = client.getService().queryVersionList(projectUuid);
+            long maxVersion = -1;
+            if (versionList != null) {
+                for (VersionNode node : versionList) {
+                    if (node.versionNo != null && node.versionNo > maxVersion) maxVersion = node.versionNo;
                 }
             }
-            final Map<String, FileDto> cloudFileMap = (tempMap != null) ? tempMap : new HashMap<>();
-            final Map<String, FileDto> missingLocalFilesMap = new HashMap<>(cloudFileMap);
+            // 版本号与版本数量共同作为标识
+            return maxVersion + "/" + (versionList != null ? versionList.size() : 0);
+        } catch (Exception e) {
+            LOG.warn("Failed to query version list: " + projectUuid, e);
+            return null;
+        }
+    }
 
-            VfsUtilCore.visitChildrenRecursively(subDir, new VirtualFileVisitor<Void>() {
-                @Override
-                public boolean visitFile(@NotNull VirtualFile file) {
-                    // 🔴 过滤逻辑：忽略 .DS_Store 等文件
-                    if (isIgnored(file)) return false;
-
-                    if (!file.isDirectory()) {
-                        String key = calculateKey(subDir, file);
-                        FileDto cloudDto = cloudFileMap.get(key);
-                        if (cloudDto != null) {
-                            checkResourceModified(file, cloudDto.getMd5(), statusService);
-                            missingLocalFilesMap.remove(key);
-                        } else {
-                            doubleCheckResource(client, projectUuid, key, file, statusService);
-                        }
+    // --- 资源文件刷新逻辑 ---
+    private FolderResult refreshResFolder(BapRpcClient client, String projectUuid, String remoteVersion, VirtualFile subDir, Executor rpcExecutor) {
+        try {
+            // 先发出远程查询 (云端版本未变化时直接使用缓存)，等待结果的同时在本地遍历并计算 MD5
+            BapManifestCache manifestCache = BapManifestCache.getInstance(project);
+            BapManifestCache.FolderManifest cached = manifestCache.getValidFolder(subDir.getPath(), projectUuid, remoteVersion);
+            CompletableFuture<BapManifestCache.FolderManifest> remoteFuture = cached != null
+                    ? CompletableFuture.completedFuture(cached)
+                    : CompletableFuture.supplyAsync(() -> {
+                Map<String, FileDto> tempMap;
+                try {
+                    tempMap = client.getService().queryAllFileMap(projectUuid, "res");
+                } catch (Exception ex) {
+                    // 云端没有 res 目录：视为云端空目录，而不是刷新失败
+                    Throwable exceptionRootCause = ToolUtilities.getExceptionRootCause(ex);
+                    if (!NoFolderException.class.equals(exceptionRootCause.getClass())) {
+                        throw new CompletionException(ex);
                     }
-                    return true;
+                    tempMap = null;
                 }
-            });
+                return manifestCache.putResFolder(subDir.getPath(), projectUuid, remoteVersion, (tempMap != null) ? tempMap : new HashMap<>());
+            }, rpcExecutor);
 
-            if (!missingLocalFilesMap.isEmpty()) {
-                createResourcePlaceholders(subDir, missingLocalFilesMap, statusService);
+            List<LocalFile> localFiles = scanLocalFiles(subDir, false);
+
+            final Map<String, BapManifestCache.RemoteEntry> cloudFileMap = remoteFuture.join().getEntries();
+            final Set<String> missingLocalFiles = new HashSet<>(cloudFileMap.keySet());
+
+            FolderResult result = new FolderResult(subDir);
+            List<LocalFile> resChecks = new ArrayList<>();
+            for (LocalFile local : localFiles) {
+                BapManifestCache.RemoteEntry cloudEntry = cloudFileMap.get(local.key);
+                if (cloudEntry != null) {
+                    result.statuses.put(local.file.getPath(), checkResourceModified(local, cloudEntry.md5));
+                    missingLocalFiles.remove(local.key);
+                } else {
+                    resChecks.add(local);
+                }
+            }
+            doubleCheckResourceBatch(() -> client, projectUuid, remoteVersion, resChecks, rpcExecutor, result.statuses);
+
+            if (!missingLocalFiles.isEmpty()) {
+                createPlaceholderCommon(subDir, missingLocalFiles, result);
             }
+            return result;
         } catch (Exception e) {
             LOG.warn(BapBundle.message("handler.ProjectRefresher.log.refresh_res_fail", e.getMessage()),e); // "Failed to refresh res folder: " + e.getMessage()
+            return null;
         }
     }
 
-    private void doubleCheckResource(BapRpcClient client, String projectUuid, String relativePath, VirtualFile file, BapFileStatusService statusService) {
+    /**
+     * 🔴 批量二次确认：云端清单中没有的本地资源，逐个向服务器确认是否存在
+     * 所有请求并发发出 (受线程池上限约束)，同一路径只查询一次；
+     * 确认不存在的路径会按云端版本号记入缓存，版本变化或提交后失效。
+     */
+    private void doubleCheckResourceBatch(Supplier<BapRpcClient> client, String projectUuid, String remoteVersion, List<LocalFile> files,
+                                          Executor rpcExecutor, Map<String, BapFileStatus> statuses) {
+        if (files.isEmpty()) return;
+
+        BapManifestCache manifestCache = BapManifestCache.getInstance(project);
+
+        // 本次刷新内的查询记录 (相对路径 -> 查询结果)
+        Map<String, CompletableFuture<Boolean>> checks = new HashMap<>();
+        for (LocalFile local : files) {
+            if (manifestCache.isKnownMissingResource(projectUuid, remoteVersion, local.key)) continue;
+            checks.computeIfAbsent(local.key, key -> CompletableFuture.supplyAsync(
+                    () -> existsRemoteResource(client, projectUuid, key), rpcExecutor));
+        }
+
+        for (LocalFile local : files) {
+            CompletableFuture<Boolean> check = checks.get(local.key);
+            Boolean exists = check != null ? check.join() : Boolean.FALSE;
+            if (check != null && Boolean.FALSE.equals(exists)) {
+                manifestCache.markMissingResource(projectUuid, remoteVersion, local.key);
+            }
+            statuses.put(local.file.getPath(), Boolean.TRUE.equals(exists) ? BapFileStatus.NORMAL : BapFileStatus.ADDED);
+        }
+    }
+
+    /**
+     * @return true=云端存在，false=云端不存在，null=查询失败 (按新增处理，但不缓存)
+     */
+    private Boolean existsRemoteResource(Supplier<BapRpcClient> client, String projectUuid, String relativePath) {
         try {
-            CResFileDto resFile = client.getService().getResFile(projectUuid, relativePath, false);
+            CResFileDto resFile = client.get().getService().getResFile(projectUuid, relativePath, false);
             if (resFile != null) {
-                statusService.setStatus(file, BapFileStatus.NORMAL);
                 LOG.info(BapBundle.message("handler.ProjectRefresher.log.double_check", relativePath)); // "Double check found file: " + relativePath
-            } else {
-                statusService.setStatus(file, BapFileStatus.ADDED);
+                return true;
             }
+            return false;
         } catch (Exception e) {
-            statusService.setStatus(file, BapFileStatus.ADDED);
+            return null;
         }
     }
 
-    private void refreshJavaFolder(BapRpcClient client, String projectUuid, VirtualFile subDir, BapFileStatusService statusService) {
+    private FolderResult refreshJavaFolder(BapRpcClient client, String projectUuid, String remoteVersion, VirtualFile subDir, Executor rpcExecutor) {
         String folderName = subDir.getName();
         try {
-            Map<String, JavaDto> tempMap = client.getService().queryCodeFile(projectUuid, folderName);
-            final Map<String, JavaDto> cloudCodeMap = (tempMap != null) ? tempMap : new HashMap<>();
-            final Map<String, JavaDto> missingLocalFilesMap = new HashMap<>(cloudCodeMap);
+            // 先发出远程查询 (云端版本未变化时直接使用缓存)，等待结果的同时在本地遍历并计算 MD5
+            BapManifestCache manifestCache = BapManifestCache.getInstance(project);
+            BapManifestCache.FolderManifest cached = manifestCache.getValidFolder(subDir.getPath(), projectUuid, remoteVersion);
+            CompletableFuture<BapManifestCache.FolderManifest> remoteFuture = cached != null
+                    ? CompletableFuture.completedFuture(cached)
+                    : CompletableFuture.supplyAsync(() -> {
+                try {
+                    Map<String, JavaDto> tempMap = client.getService().queryCodeFile(projectUuid, folderName);
+                    return manifestCache.putJavaFolder(subDir.getPath(), projectUuid, remoteVersion, (tempMap != null) ? tempMap : new HashMap<>());
+                } catch (Exception ex) {
+                    throw new CompletionException(ex);
+                }
+            }, rpcExecutor);
 
-            VfsUtilCore.visitChildrenRecursively(subDir, new VirtualFileVisitor<Void>() {
-                @Override
-                public boolean visitFile(@NotNull VirtualFile file) {
-                    // 🔴 过滤逻辑：忽略 .DS_Store 等文件
-                    if (isIgnored(file)) return false;
-
-                    if (!file.isDirectory() && "java".equalsIgnoreCase(file.getExtension())) {
-                        String key = calculateKey(subDir, file);
-                        JavaDto cloudDto = cloudCodeMap.get(key);
-
-                        if (cloudDto != null) {
-                            verifyModification(client, projectUuid, file, cloudDto, statusService);
-                            missingLocalFilesMap.remove(key);
-                        } else {
-                            statusService.setStatus(file, BapFileStatus.ADDED);
-                        }
+            List<LocalFile> localFiles = scanLocalFiles(subDir, true);
+
+            final Map<String, BapManifestCache.RemoteEntry> cloudCodeMap = remoteFuture.join().getEntries();
+            final Set<String> missingLocalFiles = new HashSet<>(cloudCodeMap.keySet());
+
+            FolderResult result = new FolderResult(subDir);
+            List<LooseCheck> looseChecks = new ArrayList<>();
+            for (LocalFile local : localFiles) {
+                BapManifestCache.RemoteEntry cloudEntry = cloudCodeMap.get(local.key);
+                if (cloudEntry != null) {
+                    BapFileStatus status = verifyModification(local, cloudEntry.md5, cloudEntry.fullClass);
+                    if (status != null) {
+                        result.statuses.put(local.file.getPath(), status);
+                    } else {
+                        looseChecks.add(new LooseCheck(local, cloudEntry.md5, cloudEntry.fullClass));
                     }
-                    return true;
+                    missingLocalFiles.remove(local.key);
+                } else {
+                    result.statuses.put(local.file.getPath(), BapFileStatus.ADDED);
                 }
-            });
+            }
+            verifyLooseBatch(() -> client, projectUuid, looseChecks, rpcExecutor, result.statuses);
 
-            if (!missingLocalFilesMap.isEmpty()) {
-                createJavaPlaceholders(subDir, missingLocalFilesMap, statusService);
+            if (!missingLocalFiles.isEmpty()) {
+                createPlaceholderCommon(subDir, missingLocalFiles, result);
             }
+            return result;
         } catch (Exception e) {
             LOG.warn(BapBundle.message("handler.ProjectRefresher.log.refresh_java_fail", client.getUri() + "_" + folderName),e); // "Failed to refresh java folder: " + folderName
+            return null;
         }
     }
 
-    private void checkResourceModified(VirtualFile file, String remoteMd5, BapFileStatusService statusService) {
-        try {
-            if (file.getLength() == 0) {
-                statusService.setStatus(file, BapFileStatus.DELETED_LOCALLY);
-                return;
+    /**
+     * 遍历目录并预先计算本地文件的 MD5 (与远程查询并行进行)
+     * @param javaOnly true=只收集 .java 文件 (代码目录)，false=收集全部文件 (res 目录)
+     */
+    private List<LocalFile> scanLocalFiles(VirtualFile subDir, boolean javaOnly) {
+        List<LocalFile> result = new ArrayList<>();
+        VfsUtilCore.visitChildrenRecursively(subDir, new VirtualFileVisitor<Void>() {
+            @Override
+            public boolean visitFile(@NotNull VirtualFile file) {
+                // 🔴 过滤逻辑：忽略 .DS_Store 等文件
+                if (isIgnored(file)) return false;
+
+                if (!file.isDirectory() && (!javaOnly || "java".equalsIgnoreCase(file.getExtension()))) {
+                    String key = calculateKey(subDir, file);
+                    result.add(javaOnly ? hashJavaFile(file, key) : hashResourceFile(file, key));
+                }
+                return true;
+            }
+        });
+        return result;
+    }
+
+    private LocalFile hashResourceFile(VirtualFile file, String key) {
+        // 未保存的文档按保存后的字节计算 (不写入缓存)
+        if (BapUtils.getUnsavedText(file) != null) {
+            try {
+                byte[] bytes = BapUtils.contentsToByteArray(file);
+                if (bytes.length == 0) return new LocalFile(file, key, true, null);
+                return new LocalFile(file, key, false, BapHashUtils.md5(bytes));
+            } catch (Exception e) {
+                return new LocalFile(file, key, false, null);
             }
-            byte[] content = file.contentsToByteArray();
-            String localMd5 = calculateBytesMD5(content);
+        }
+
+        // 🔴 文件长度和修改时间都没变时直接使用缓存的 MD5，无需读取文件
+        BapHashCache.Entry cached = hashCache.get(file, false);
+        if (cached != null) return new LocalFile(file, key, cached.deleted, cached.md5);
 
-            if (remoteMd5 != null && remoteMd5.equalsIgnoreCase(localMd5)) {
-                statusService.setStatus(file, BapFileStatus.NORMAL);
-            } else {
-                statusService.setStatus(file, BapFileStatus.MODIFIED);
+        try {
+            // 必须在读取内容之前获取长度和时间戳
+            long length = file.getLength();
+            long timeStamp = file.getTimeStamp();
+            if (length == 0) {
+                hashCache.put(file, false, length, timeStamp, true, null);
+                return new LocalFile(file, key, true, null);
             }
+            String md5;
+            try (InputStream in = file.getInputStream()) {
+                md5 = BapHashUtils.md5(in);
+            }
+            hashCache.put(file, false, length, timeStamp, false, md5);
+            return new LocalFile(file, key, false, md5);
         } catch (Exception e) {
-            statusService.setStatus(file, BapFileStatus.MODIFIED);
+            return new LocalFile(file, key, false, null);
         }
     }
 
-    private void verifyModification(BapRpcClient client, String projectUuid, VirtualFile file, JavaDto cloudDto, BapFileStatusService statusService) {
+    private LocalFile hashJavaFile(VirtualFile file, String key) {
+        // 未保存的文档直接使用内存中的内容 (不写入缓存)
+        CharSequence unsavedText = BapUtils.getUnsavedText(file);
+        if (unsavedText != null) {
+            if (BapHashUtils.isBlank(unsavedText)) return new LocalFile(file, key, true, null);
+            return new LocalFile(file, key, false, BapHashUtils.standardMd5(unsavedText));
+        }
+
+        BapHashCache.Entry cached = hashCache.get(file, true);
+        if (cached != null) return new LocalFile(file, key, cached.deleted, cached.md5);
+
         try {
-            if (file.getLength() == 0) {
-                statusService.setStatus(file, BapFileStatus.DELETED_LOCALLY);
-                return;
+            long length = file.getLength();
+            long timeStamp = file.getTimeStamp();
+            if (length == 0) {
+                hashCache.put(file, true, length, timeStamp, true, null);
+                return new LocalFile(file, key, true, null);
             }
-            String localContent = new String(file.contentsToByteArray(), StandardCharsets.UTF_8);
-            if (localContent.trim().isEmpty()) {
-                statusService.setStatus(file, BapFileStatus.DELETED_LOCALLY);
-                return;
+            // 🔴 流式计算：边读边归一化换行符，不生成中间字符串
+            BapHashUtils.TextDigest digest;
+            try (InputStream in = file.getInputStream()) {
+                digest = BapHashUtils.standardMd5(in);
             }
-
-            String standardLocalMd5 = calculateStandardMD5(localContent.replace("\r\n", "\n"));
-            if (cloudDto.getMd5() != null && cloudDto.getMd5().equalsIgnoreCase(standardLocalMd5)) {
-                statusService.setStatus(file, BapFileStatus.NORMAL);
-                return;
+            if (digest == null) {
+                // 非法 UTF-8 内容按原有的字符串方式计算，保证结果一致
+                digest = BapHashUtils.standardMd5Legacy(file.contentsToByteArray());
             }
+            hashCache.put(file, true, length, timeStamp, digest.blank, digest.md5);
+            return new LocalFile(file, key, digest.blank, digest.md5);
+        } catch (Exception e) {
+            return new LocalFile(file, key, false, null);
+        }
+    }
+
+    private BapFileStatus checkResourceModified(LocalFile local, String remoteMd5) {
+        if (local.deleted) return BapFileStatus.DELETED_LOCALLY;
+        if (local.md5 == null) return BapFileStatus.MODIFIED;
+
+        if (remoteMd5 != null && remoteMd5.equalsIgnoreCase(local.md5)) {
+            return BapFileStatus.NORMAL;
+        }
+        return BapFileStatus.MODIFIED;
+    }
+
+    /**
+     * 标准 MD5 比较
+     * @return 需要进一步做宽松比较 (忽略空白字符) 时返回 null
+     */
+    private BapFileStatus verifyModification(LocalFile local, String remoteMd5, String fullClass) {
+        if (local.deleted) return BapFileStatus.DELETED_LOCALLY;
+        if (local.md5 == null) return BapFileStatus.MODIFIED;
+
+        if (remoteMd5 != null && remoteMd5.equalsIgnoreCase(local.md5)) {
+            return BapFileStatus.NORMAL;
+        }
+        return fullClass != null ? null : BapFileStatus.MODIFIED;
+    }
 
-            if (cloudDto.getFullClass() != null) {
-                Object remoteObj = client.getService().getJavaCode(projectUuid, cloudDto.getFullClass());
-                String remoteCode = extractCodeString(remoteObj);
-                if (remoteCode != null) {
-                    String looseLocal = calculateLooseMD5(localContent);
-                    String looseRemote = calculateLooseMD5(remoteCode);
-                    if (looseLocal.equals(looseRemote)) {
-                        statusService.setStatus(file, BapFileStatus.NORMAL);
-                        return;
+    /**
+     * 🔴 批量宽松比较：标准 MD5 不一致的文件统一在这里处理
+     * 按 (fullClass, 云端 MD5) 去重后并发获取云端代码；云端代码的宽松 MD5 会缓存下来，
+     * 同一版本的代码只会下载一次 (换行符或格式化变更后不会再产生大量串行请求)。
+     */
+    private void verifyLooseBatch(Supplier<BapRpcClient> client, String projectUuid, List<LooseCheck> checks,
+                                  Executor rpcExecutor, Map<String, BapFileStatus> statuses) {
+        if (checks.isEmpty()) return;
+
+        BapManifestCache manifestCache = BapManifestCache.getInstance(project);
+
+        // 1. 并发获取尚未缓存的云端代码
+        Map<String, CompletableFuture<String>> fetches = new HashMap<>();
+        for (LooseCheck check : checks) {
+            if (check.remoteMd5 != null && manifestCache.getRemoteLooseMd5(check.fullClass, check.remoteMd5) != null) continue;
+            fetches.computeIfAbsent(check.fullClass + "|" + check.remoteMd5, k -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    Object remoteObj = client.get().getService().getJavaCode(projectUuid, check.fullClass);
+                    String remoteCode = extractCodeString(remoteObj);
+                    if (remoteCode == null) return null;
+                    String looseRemote = BapHashUtils.looseMd5(remoteCode);
+                    // 云端 MD5 未知时无法判断代码是否变化，不缓存
+                    if (check.remoteMd5 != null) manifestCache.putRemoteLooseMd5(check.fullClass, check.remoteMd5, looseRemote);
+                    return looseRemote;
+                } catch (Exception e) {
+                    // 宽松比较失败按修改处理
+                    return null;
+                }
+            }, rpcExecutor));
+        }
+
+        // 2. 与本地宽松 MD5 比较
+        for (LooseCheck check : checks) {
+            BapFileStatus status = BapFileStatus.MODIFIED;
+            CompletableFuture<String> fetch = fetches.get(check.fullClass + "|" + check.remoteMd5);
+            String looseRemote = fetch != null ? fetch.join() : manifestCache.getRemoteLooseMd5(check.fullClass, check.remoteMd5);
+            if (looseRemote != null) {
+                try {
+                    if (looseRemote.equals(getLocalLooseMD5(check.local.file))) {
+                        status = BapFileStatus.NORMAL;
                     }
+                } catch (Exception ignore) {
+                    // 读取失败按修改处理
                 }
             }
-            statusService.setStatus(file, BapFileStatus.MODIFIED);
-        } catch (Exception e) {
-            statusService.setStatus(file, BapFileStatus.MODIFIED);
+            statuses.put(check.local.file.getPath(), status);
         }
     }
 
-    private void createJavaPlaceholders(VirtualFile dirRoot, Map<String, JavaDto> missingMap, BapFileStatusService statusService) {
-        createPlaceholderCommon(dirRoot, missingMap.keySet(), statusService);
-    }
+    // 本地文件的宽松 MD5 同样走缓存
+    private String getLocalLooseMD5(VirtualFile file) throws IOException {
+        CharSequence unsavedText = BapUtils.getUnsavedText(file);
+        if (unsavedText != null) return BapHashUtils.looseMd5(unsavedText);
 
-    private void createResourcePlaceholders(VirtualFile dirRoot, Map<String, FileDto> missingMap, BapFileStatusService statusService) {
-        createPlaceholderCommon(dirRoot, missingMap.keySet(), statusService);
+        String looseLocal = hashCache.getLooseMd5(file);
+        if (looseLocal != null) return looseLocal;
+
+        long length = file.getLength();
+        long timeStamp = file.getTimeStamp();
+        try (InputStream in = file.getInputStream()) {
+            looseLocal = BapHashUtils.looseMd5(in);
+        }
+        if (looseLocal == null) {
+            looseLocal = BapHashUtils.looseMd5(new String(file.contentsToByteArray(), StandardCharsets.UTF_8));
+        }
+        hashCache.putLooseMd5(file, length, timeStamp, looseLocal);
+        return looseLocal;
     }
 
     // --- 🔴 核心修改：仅记录状态，不创建文件 ---
-    private void createPlaceholderCommon(VirtualFile dirRoot, java.util.Set<String> missingPaths, BapFileStatusService statusService) {
-        ApplicationManager.getApplication().invokeLater(() -> {
-            for (String relativePath : missingPaths) {
-                // 1. 过滤垃圾文件
-                if (relativePath == null || relativePath.contains(".DS_Store")) continue;
-
-                // 2. 构造绝对路径
-                File ioFile = new File(dirRoot.getPath(), relativePath);
-                String fullPath = ioFile.getAbsolutePath().replace(File.separatorChar, '/');
-
-                // 3. 🔴 仅设置状态，不创建文件
-                // 注意：请确保 BapFileStatusService 提供了 setStatus(String, BapFileStatus) 方法
-                // 如果只有 setStatus(VirtualFile, ...)，你需要添加该重载方法，因为此时 VirtualFile 不存在。
-                statusService.setStatus(fullPath, BapFileStatus.DELETED_LOCALLY);
-            }
-        });
+    private void createPlaceholderCommon(VirtualFile dirRoot, Set<String> missingPaths, FolderResult result) {
+        for (String relativePath : missingPaths) {
+            // 1. 过滤垃圾文件
+            if (relativePath == null || relativePath.contains(".DS_Store")) continue;
+
+            // 2. 构造绝对路径
+            File ioFile = new File(dirRoot.getPath(), relativePath);
+            String fullPath = ioFile.getAbsolutePath().replace(File.separatorChar, '/');
+
+            // 3. 🔴 仅记录状态，不创建文件 (VirtualFile 不存在，按路径记录)
+            result.statuses.put(fullPath, BapFileStatus.DELETED_LOCALLY);
+        }
     }
 
     private String extractCodeString(Object obj) {
@@ -404,38 +770,48 @@ public class ProjectRefresher {
         return path != null ? path : "";
     }
 
-    private String calculateBytesMD5(byte[] content) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] hash = md.digest(content);
-            return bytesToHex(hash);
-        } catch (Exception e) { return ""; }
-    }
-
-    private String calculateLooseMD5(String content) {
-        try {
-            String normalized = content.replaceAll("\\s+", "");
-            return calculateStandardMD5(normalized);
-        } catch (Exception e) { return ""; }
-    }
+    /**
+     * 单个目录的刷新结果 (绝对路径 -> 状态)，全部目录完成后再统一写入 BapFileStatusService
+     */
+    private static final class FolderResult {
+        final VirtualFile dir;
+        final Map<String, BapFileStatus> statuses = new HashMap<>();
 
-    private String calculateStandardMD5(String content) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] hash = md.digest(content.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hash);
-        } catch (Exception e) { return ""; }
+        FolderResult(VirtualFile dir) {
+            this.dir = dir;
+        }
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder hex = new StringBuilder();
-        for (byte b : bytes) hex.append(String.format("%02X", b));
-        return hex.toString();
+    /**
+     * 待宽松比较的文件
+     */
+    private static final class LooseCheck {
+        final LocalFile local;
+        final String remoteMd5;
+        final String fullClass;
+
+        LooseCheck(LocalFile local, String remoteMd5, String fullClass) {
+            this.local = local;
+            this.remoteMd5 = remoteMd5;
+            this.fullClass = fullClass;
+        }
     }
 
-    private String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
+    /**
+     * 本地文件的预计算结果
+     * deleted=true 表示空文件 (视为红D)；md5=null 表示读取失败 (视为修改)
+     */
+    private static final class LocalFile {
+        final VirtualFile file;
+        final String key;
+        final boolean deleted;
+        final String md5;
+
+        LocalFile(VirtualFile file, String key, boolean deleted, String md5) {
+            this.file = file;
+            this.key = key;
+            this.deleted = deleted;
+            this.md5 = md5;
+        }
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,8 @@ import bap.java.CJavaConst;
 import bap.java.CJavaProjectDto;
 import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapConfigService;
+import com.bap.dev.service.BapDevelopConfig;
 import com.bap.dev.settings.BapSettingsState;
 import com.bap.dev.ui.LogonDialog;
 import com.bap.dev.ui.RelocateDialog;
@@ -21,10 +23,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class RelocateHandler {
 
@@ -33,20 +32,18 @@ public class RelocateHandler {
         File confFile = new File(modulePath, CJavaConst.PROJECT_DEVELOP_CONF_FILE);
 
         // 1. 读取当前配置 (为了获取默认 AdminTool 和做对比)
-        String oldContent = "";
         String defUri = "", defUser = "", defPwd = "", defAdminTool = "bap.client.BapMainFrame", defRemark = "";
 
-        if (confFile.exists()) {
-            try {
-                oldContent = Files.readString(confFile.toPath());
-                defUri = extractAttr(oldContent, "Uri");
-                defUser = extractAttr(oldContent, "User");
-                defPwd = extractAttr(oldContent, "Password");
-                String tool = extractAttr(oldContent, "AdminTool");
-                if (tool != null) defAdminTool = tool;
-            } catch (IOException e) {
-                e.printStackTrace();
+        try {
+            BapDevelopConfig oldConfig = BapConfigService.getInstance(project).getConfig(modulePath);
+            if (oldConfig != null) {
+                defUri = oldConfig.uri;
+                defUser = oldConfig.user;
+                defPwd = oldConfig.password;
+                if (oldConfig.adminTool != null) defAdminTool = oldConfig.adminTool;
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
 
         final String finalAdminTool = defAdminTool; // 供后续使用
@@ -69,7 +66,7 @@ public class RelocateHandler {
                             // 优先使用历史里的 AdminTool，如果没有则使用文件原本的
                             String toolToWrite = (profile.adminTool != null && !profile.adminTool.isEmpty()) ? profile.adminTool : finalAdminTool;
 
-                            saveNewConfig(confFile, profile.projectUuid, profile.uri, profile.user, profile.pwd, toolToWrite);
+                            saveNewConfig(project, confFile, profile.projectUuid, profile.uri, profile.user, profile.pwd, toolToWrite);
 
                             // 更新一下历史记录的顺序（置顶）
                             BapSettingsState.getInstance().addRelocateHistory(modulePath, profile);
@@ -129,7 +126,7 @@ public class RelocateHandler {
                             if (selected != null) {
                                 // 5. 执行重定向 (保存全量新配置)
                                 try {
-                                    saveNewConfig(confFile, selected.getUuid(), newUri, newUser, newPwd, finalAdminTool);
+                                    saveNewConfig(project, confFile, selected.getUuid(), newUri, newUser, newPwd, finalAdminTool);
 
                                     // --- 🔴 成功后保存到历史记录 ---
                                     BapSettingsState.RelocateProfile profile = new BapSettingsState.RelocateProfile(
@@ -158,7 +155,7 @@ public class RelocateHandler {
         });
     }
 
-    private static void saveNewConfig(File confFile, String pjUuid, String uri, String user, String pwd, String adminTool) throws IOException {
+    private static void saveNewConfig(Project project, File confFile, String pjUuid, String uri, String user, String pwd, String adminTool) throws IOException {
         String xmlContent = String.format(
                 "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
                         "\n" +
@@ -173,12 +170,8 @@ public class RelocateHandler {
         try (FileOutputStream fos = new FileOutputStream(confFile)) {
             fos.write(xmlContent.getBytes(StandardCharsets.UTF_8));
         }
-    }
-
-    private static String extractAttr(String xml, String attr) {
-        Pattern p = Pattern.compile(attr + "=\"([^\"]*)\"");
-        Matcher m = p.matcher(xml);
-        return m.find() ? m.group(1) : null;
+        // 直接写入磁盘，VFS 尚未感知，需要主动让配置缓存失效
+        BapConfigService.getInstance(project).invalidate(confFile.getParentFile().getPath().replace(File.separatorChar, '/'));
     }
 
     private static void showError(String msg, Project project) {
@@ -1,6 +1,6 @@
 package com.bap.dev.listener;
 
-import com.bap.dev.handler.ProjectRefresher;
+import com.bap.dev.service.BapRefreshScheduler;
 import com.bap.dev.settings.BapSettingsState; // 引入配置类
 import com.bap.dev.util.BapUtils;
 import com.intellij.openapi.diagnostic.Logger;
@@ -12,9 +12,10 @@ import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import com.intellij.util.Alarm;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BapAutoRefreshListener implements BulkFileListener {
 
@@ -22,10 +23,13 @@ public class BapAutoRefreshListener implements BulkFileListener {
 
     private final Project project;
     private final Alarm debounceAlarm;
+    // 防抖期间累积的变更文件
+    private final Set<VirtualFile> pendingFiles = ConcurrentHashMap.newKeySet();
 
     public BapAutoRefreshListener(Project project) {
         this.project = project;
-        this.debounceAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, project);
+        // 刷新涉及文件读取和网络请求，放在后台线程执行
+        this.debounceAlarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, project);
     }
 
     @Override
@@ -36,7 +40,7 @@ public class BapAutoRefreshListener implements BulkFileListener {
         }
         // ----------------------------------------
 
-        Set<VirtualFile> modulesToRefresh = new HashSet<>();
+        boolean hasBapFile = false;
 
         for (VFileEvent event : events) {
             if (!(event instanceof VFileContentChangeEvent)) {
@@ -46,39 +50,37 @@ public class BapAutoRefreshListener implements BulkFileListener {
             VirtualFile file = event.getFile();
             if (file == null || !file.isValid()) continue;
 
-            // 辅助方法: 从文件向上查找模块根目录(包含.develop)
-            // 注意：这里假设你有 BapUtils.findModuleRoot 方法，如果没有，请直接把方法体复制进来
-            VirtualFile moduleRoot = BapUtils.findModuleRoot(file);
-
-            if (moduleRoot != null) {
-                LOG.info("检测到变更，准备自动刷新: " + moduleRoot.getName());
-                modulesToRefresh.add(moduleRoot);
+            // 通过模块根目录索引判断是否属于 Bap 模块 (不遍历 VFS)
+            if (BapUtils.findModuleRoot(project, file) != null) {
+                // 🔴 只记录变更的文件，防抖结束后增量刷新这些文件，而不是整个模块
+                pendingFiles.add(file);
+                hasBapFile = true;
             }
         }
 
-        if (!modulesToRefresh.isEmpty()) {
-            scheduleRefresh(modulesToRefresh);
+        if (hasBapFile) {
+            scheduleRefresh();
         }
     }
 
-    private void scheduleRefresh(Set<VirtualFile> modules) {
+    private void scheduleRefresh() {
         debounceAlarm.cancelAllRequests();
         debounceAlarm.addRequest(() -> {
             if (project.isDisposed()) return;
 
             // 二次检查：防止在防抖期间用户关闭了开关
-            if (!BapSettingsState.getInstance().autoRefresh) return;
+            if (!BapSettingsState.getInstance().autoRefresh) {
+                pendingFiles.clear();
+                return;
+            }
 
-            LOG.info(">>> 执行自动刷新 <<<");
+            List<VirtualFile> files = new ArrayList<>(pendingFiles);
+            pendingFiles.removeAll(files);
+            if (files.isEmpty()) return;
 
-            ProjectRefresher refresher = new ProjectRefresher(project);
-            for (VirtualFile moduleRoot : modules) {
-                try {
-                    refresher.refreshModule(moduleRoot);
-                } catch (Exception e) {
-                    LOG.warn("自动刷新模块失败: " + moduleRoot.getName(), e);
-                }
-            }
+            LOG.info(">>> 执行自动刷新 <<< " + files.size() + " file(s)");
+
+            BapRefreshScheduler.getInstance(project).scheduleFileRefresh(files);
         }, 1000); // 设置 1秒 防抖延迟，避免频繁触发
     }
 }
\ No newline at end of file
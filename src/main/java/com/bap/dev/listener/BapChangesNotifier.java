@@ -1,11 +1,43 @@
 package com.bap.dev.listener;
 
+import com.bap.dev.service.BapFileStatus;
 import com.intellij.util.messages.Topic;
 
+import java.util.List;
+
 public interface BapChangesNotifier {
     // 定义消息主题
     Topic<BapChangesNotifier> TOPIC = Topic.create("Bap Changes Notifier", BapChangesNotifier.class);
 
     // 当 Bap 文件状态发生变化（刷新、提交、更新）后调用
-    void onChangesUpdated();
+    default void onChangesUpdated() {
+    }
+
+    /**
+     * 🔴 新增：文件状态的增量变化，由 BapFileStatusService 在后台线程按批发布
+     * 同一批中每个路径只出现一次，订阅方只需处理这些路径，不必全量重算
+     * @param deltas 本批变化 (不可修改)
+     */
+    default void onStatusesChanged(List<StatusDelta> deltas) {
+    }
+
+    /**
+     * 单个文件的状态变化，NORMAL 表示没有变化 (文件不在状态表中)
+     */
+    final class StatusDelta {
+        public final String path;
+        public final BapFileStatus oldStatus;
+        public final BapFileStatus newStatus;
+
+        public StatusDelta(String path, BapFileStatus oldStatus, BapFileStatus newStatus) {
+            this.path = path;
+            this.oldStatus = oldStatus;
+            this.newStatus = newStatus;
+        }
+
+        @Override
+        public String toString() {
+            return path + ": " + oldStatus + " -> " + newStatus;
+        }
+    }
 }
\ No newline at end of file
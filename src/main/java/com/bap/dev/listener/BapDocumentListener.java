@@ -1,9 +1,8 @@
 package com.bap.dev.listener;
 
-import com.bap.dev.handler.ProjectRefresher;
+import com.bap.dev.service.BapRefreshScheduler;
 import com.bap.dev.settings.BapSettingsState;
 import com.bap.dev.util.BapUtils;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.editor.event.DocumentListener;
@@ -13,15 +12,22 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.Alarm;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class BapDocumentListener implements DocumentListener {
 
     private final Project project;
     private final Alarm debounceAlarm;
+    // 防抖期间累积的被编辑文件
+    private final Set<VirtualFile> pendingFiles = ConcurrentHashMap.newKeySet();
 
     public BapDocumentListener(Project project) {
         this.project = project;
-        // 使用 SWING_THREAD 确保在 UI 线程执行 (DocumentListener 本身就在 UI 线程触发)
-        this.debounceAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, project);
+        // 刷新涉及文件读取和网络请求，放在后台线程执行 (DocumentListener 本身在 UI 线程触发，这里只做记录)
+        this.debounceAlarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, project);
     }
 
     @Override
@@ -41,15 +47,14 @@ public class BapDocumentListener implements DocumentListener {
         if (file == null || !file.isValid()) return;
 
         // 3. 查找是否属于 Bap 模块
-        VirtualFile moduleRoot = BapUtils.findModuleRoot(file);
-
-        if (moduleRoot != null) {
-            // 4. 触发防抖刷新
-            scheduleRefresh(moduleRoot);
+        if (BapUtils.findModuleRoot(project, file) != null) {
+            // 4. 记录文件并触发防抖刷新
+            pendingFiles.add(file);
+            scheduleRefresh();
         }
     }
 
-    private void scheduleRefresh(VirtualFile moduleRoot) {
+    private void scheduleRefresh() {
         // 取消之前的请求（如果用户一直在打字，就一直重置计时器）
         debounceAlarm.cancelAllRequests();
 
@@ -59,17 +64,18 @@ public class BapDocumentListener implements DocumentListener {
             if (project.isDisposed()) return;
 
             // 二次检查：防止在防抖期间用户关闭了开关
-            if (!BapSettingsState.getInstance().autoRefresh) return;
-
-            // 执行刷新逻辑
-            // 注意：此时文件内容还在内存中，没有保存到磁盘！
-            // 如果 ProjectRefresher 读取的是 java.io.File (磁盘)，它读到的还是旧的。
-            // 如果 ProjectRefresher 读取的是 PSI 或 VirtualFile，它能读到新的。
-            try {
-                new ProjectRefresher(project).refreshModule(moduleRoot);
-            } catch (Exception e) {
-                e.printStackTrace();
+            if (!BapSettingsState.getInstance().autoRefresh) {
+                pendingFiles.clear();
+                return;
             }
+
+            List<VirtualFile> files = new ArrayList<>(pendingFiles);
+            pendingFiles.removeAll(files);
+            if (files.isEmpty()) return;
+
+            // 🔴 只增量刷新被编辑的文件
+            // 此时文件内容还在内存中，没有保存到磁盘，ProjectRefresher 会直接读取未保存文档的内容
+            BapRefreshScheduler.getInstance(project).scheduleFileRefresh(files);
         }, 1000);
     }
 }
\ No newline at end of file
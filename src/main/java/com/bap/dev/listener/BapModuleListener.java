@@ -1,12 +1,9 @@
 package com.bap.dev.listener;
 
 import bap.java.CJavaConst;
-import com.bap.dev.handler.ProjectRefresher;
-import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapModuleRootIndex;
+import com.bap.dev.service.BapRefreshScheduler;
 import com.intellij.openapi.module.Module;
-import com.intellij.openapi.progress.ProgressIndicator;
-import com.intellij.openapi.progress.ProgressManager;
-import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.ModuleListener;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootManager;
@@ -20,21 +17,23 @@ public class BapModuleListener implements ModuleListener {
     @Override
     public void moduleAdded(@NotNull Project project, @NotNull Module module) {
         // 当新模块添加时触发
+        BapModuleRootIndex.getInstance(project).invalidate();
         VirtualFile[] contentRoots = ModuleRootManager.getInstance(module).getContentRoots();
 
         for (VirtualFile root : contentRoots) {
             // 检查是否为 Bap 模块 (有配置文件)
             if (root.findChild(CJavaConst.PROJECT_DEVELOP_CONF_FILE) != null) {
 
-                // 启动后台任务刷新该模块
-                ProgressManager.getInstance().run(new Task.Backgroundable(project, BapBundle.message("progress.refresh_module"), true) {
-                    @Override
-                    public void run(@NotNull ProgressIndicator indicator) {
-                        new ProjectRefresher(project).refreshModule(root);
-                    }
-                });
+                // 交给刷新调度在后台刷新该模块
+                BapRefreshScheduler.getInstance(project).scheduleRefresh(root, true);
                 break;
             }
         }
     }
+
+    @Override
+    public void moduleRemoved(@NotNull Project project, @NotNull Module module) {
+        // 模块移除后，其根目录不再属于 Bap 模块
+        BapModuleRootIndex.getInstance(project).invalidate();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.bap.dev.listener;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.FileStatusManager;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 根据状态增量只刷新受影响文件的显示
+ * 对每个变化的文件调用 FileStatusManager.fileStatusChanged(file)，项目视图和编辑器页签只更新这些文件的节点，
+ * 不再清空整个项目的 PSI 缓存或刷新整棵项目树。文件内容的变化由 VFS 事件通知 PSI，这里不需要处理。
+ */
+public class BapStatusUiUpdater implements BapChangesNotifier {
+
+    // 一批变化超过这个数量时，逐个通知反而比整体刷新一次更慢
+    private static final int BULK_THRESHOLD = 1000;
+
+    private final Project project;
+
+    public BapStatusUiUpdater(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public void onStatusesChanged(List<StatusDelta> deltas) {
+        // 在发布线程上解析文件，本地已删除的文件没有节点，不需要刷新
+        List<VirtualFile> files = new ArrayList<>(Math.min(deltas.size(), BULK_THRESHOLD));
+        boolean bulk = deltas.size() > BULK_THRESHOLD;
+        if (!bulk) {
+            for (StatusDelta delta : deltas) {
+                VirtualFile file = LocalFileSystem.getInstance().findFileByPath(delta.path);
+                if (file != null) files.add(file);
+            }
+            if (files.isEmpty()) return;
+        }
+
+        ApplicationManager.getApplication().invokeLater(() -> {
+            FileStatusManager statusManager = FileStatusManager.getInstance(project);
+            if (bulk) {
+                statusManager.fileStatusesChanged();
+                return;
+            }
+            for (VirtualFile file : files) {
+                if (file.isValid()) statusManager.fileStatusChanged(file);
+            }
+        }, project.getDisposed());
+    }
+}
\ No newline at end of file
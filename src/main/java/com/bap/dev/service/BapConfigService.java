@@ -0,0 +1,144 @@
+package com.bap.dev.service;
+
+import bap.java.CJavaConst;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Project 级别的 .develop 配置缓存
+ * 每个模块的配置文件只在第一次使用时读取并解析，之后直接从内存返回；
+ * 文件被修改、删除、移动或重命名时通过 VFS 事件失效；
+ * .develop 新建、删除、移动或重命名时同时使 BapModuleRootIndex 失效 (模块是否为 Bap 模块随之变化)。
+ */
+@Service(Service.Level.PROJECT)
+public final class BapConfigService implements Disposable {
+
+    private static final String CONF_SUFFIX = "/" + CJavaConst.PROJECT_DEVELOP_CONF_FILE;
+
+    private final Project project;
+    // Key 是模块根目录的路径 (VirtualFile.getPath() 格式)
+    private final Map<String, BapDevelopConfig> configs = new ConcurrentHashMap<>();
+    // 每次失效加一，读取期间发生过失效的结果不写入缓存
+    private final AtomicLong generation = new AtomicLong();
+
+    public BapConfigService(Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    onFileEvent(event);
+                }
+            }
+        });
+    }
+
+    public static BapConfigService getInstance(@NotNull Project project) {
+        return project.getService(BapConfigService.class);
+    }
+
+    public @Nullable BapDevelopConfig getConfig(@NotNull VirtualFile moduleRoot) throws IOException {
+        return getConfig(moduleRoot.getPath());
+    }
+
+    /**
+     * 获取模块配置
+     * @return 配置文件不存在时返回 null
+     * @throws IOException 配置文件存在但读取失败
+     */
+    public @Nullable BapDevelopConfig getConfig(@NotNull String moduleRootPath) throws IOException {
+        BapDevelopConfig config = configs.get(moduleRootPath);
+        if (config != null) return config;
+
+        File confFile = new File(moduleRootPath, CJavaConst.PROJECT_DEVELOP_CONF_FILE);
+        if (!confFile.exists()) return null;
+
+        long gen = generation.get();
+        config = BapDevelopConfig.parse(Files.readString(confFile.toPath()));
+        if (generation.get() == gen) {
+            configs.put(moduleRootPath, config);
+        }
+        return config;
+    }
+
+    /**
+     * 获取模块配置，配置文件不存在时抛出 NoSuchFileException (与直接读取文件时的行为一致)
+     */
+    public @NotNull BapDevelopConfig requireConfig(@NotNull VirtualFile moduleRoot) throws IOException {
+        BapDevelopConfig config = getConfig(moduleRoot.getPath());
+        if (config == null) {
+            throw new NoSuchFileException(new File(moduleRoot.getPath(), CJavaConst.PROJECT_DEVELOP_CONF_FILE).getPath());
+        }
+        return config;
+    }
+
+    /**
+     * 使模块的配置失效 (直接通过 java.io 写入 .develop 后调用，无需等待 VFS 刷新)
+     */
+    public void invalidate(@NotNull String moduleRootPath) {
+        generation.incrementAndGet();
+        configs.remove(moduleRootPath);
+    }
+
+    private void onFileEvent(VFileEvent event) {
+        String path = event.getPath();
+        if (path.endsWith(CONF_SUFFIX)) {
+            invalidate(path.substring(0, path.length() - CONF_SUFFIX.length()));
+            // 内容修改不影响模块索引，其余 (新建、删除、移动、改名) 都可能改变某个目录是否为 Bap 模块
+            if (!(event instanceof VFileContentChangeEvent)) invalidateRootIndex();
+            return;
+        }
+        // 模块目录 (或其上级目录) 被删除、移动或重命名时，旧路径下的缓存全部作废
+        if (event instanceof VFileDeleteEvent) {
+            invalidateTree(path);
+        } else if (event instanceof VFileMoveEvent) {
+            invalidateTree(((VFileMoveEvent) event).getOldPath());
+        } else if (event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename()) {
+            invalidateTree(((VFilePropertyChangeEvent) event).getOldPath());
+        }
+    }
+
+    private void invalidateTree(String dirPath) {
+        if (dirPath.endsWith(CONF_SUFFIX)) {
+            // .develop 本身被移走或改名
+            invalidate(dirPath.substring(0, dirPath.length() - CONF_SUFFIX.length()));
+            invalidateRootIndex();
+            return;
+        }
+        if (configs.isEmpty()) return;
+        String prefix = dirPath + "/";
+        generation.incrementAndGet();
+        configs.keySet().removeIf(k -> k.equals(dirPath) || k.startsWith(prefix));
+    }
+
+    @Override
+    public void dispose() {
+        configs.clear();
+    }
+
+    private void invalidateRootIndex() {
+        if (!project.isDisposed()) {
+            BapModuleRootIndex.getInstance(project).invalidate();
+        }
+    }
+}
\ No newline at end of file
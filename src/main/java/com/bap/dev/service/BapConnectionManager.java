@@ -4,97 +4,260 @@ import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Project 级别的 Service，用于管理长连接
+ * 按 服务器地址 + 用户 + 密码 维护一个连接池，不同模块连接不同服务器时各自复用已登录的连接，
+ * 切换模块无需重新登录。连接空闲超时或超出池容量时关闭。
+ * 连接的健康状态由后台心跳维护，getSharedClient 对健康的连接直接返回，不做任何网络请求；
+ * 心跳失败的连接在下次使用时重连，连续失败时按指数退避等待。
  * 实现 Disposable 接口，以便在项目关闭时自动断开连接
  */
 @Service(Service.Level.PROJECT)
 public final class BapConnectionManager implements Disposable {
 
-    private final Project project;
-    private BapRpcClient activeClient;
+    private static final Logger LOG = Logger.getInstance(BapConnectionManager.class);
+
+    // 连接池容量上限，超出后关闭最久未使用的连接
+    private static final int MAX_CLIENTS = 8;
+    // 空闲超过该时间的连接会被关闭
+    private static final long IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+    // 心跳间隔 (同时负责清理空闲连接)
+    private static final long HEARTBEAT_SECONDS = 30;
+    // 超过该时间没有成功的心跳，视为状态未知，使用时触发一次后台检测
+    private static final long STALE_MS = TimeUnit.SECONDS.toMillis(HEARTBEAT_SECONDS * 3);
+    // 重连失败后的退避时间：从 1 秒开始翻倍，最长 60 秒
+    private static final long BACKOFF_BASE_MS = 1000;
+    private static final long BACKOFF_MAX_MS = TimeUnit.SECONDS.toMillis(60);
 
-    // 记录当前的连接参数，用于判断是否需要切换环境
-    private String currentUri;
-    private String currentUser;
-    private String currentPwd;
+    private final Project project;
+    private final Map<String, PooledClient> clients = new ConcurrentHashMap<>();
+    private final ScheduledFuture<?> heartbeatTask;
 
     public BapConnectionManager(Project project) {
         this.project = project;
+        this.heartbeatTask = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(
+                this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
     }
 
     /**
      * 获取共享的客户端实例。
-     * 如果参数变了（比如切换了 .develop 配置），或者连接断了，会自动重连。
+     * 同一组连接参数复用池中的连接；健康的连接直接返回，无网络请求也无全局锁。
+     * 心跳判定为断开的连接会在这里重连。
      */
-    public synchronized BapRpcClient getSharedClient(String uri, String user, String pwd) {
-        // 1. 检查配置是否发生变化
-        boolean configChanged = !Objects.equals(uri, currentUri) ||
-                !Objects.equals(user, currentUser) ||
-                !Objects.equals(pwd, currentPwd);
+    public BapRpcClient getSharedClient(String uri, String user, String pwd) {
+        String key = key(uri, user, pwd);
+        PooledClient existing = clients.get(key);
+        if (existing == null) {
+            existing = clients.computeIfAbsent(key, k -> new PooledClient());
+            evictOverflow(key);
+        }
+        final PooledClient pooled = existing;
+        pooled.lastUsed = System.currentTimeMillis();
 
-        // 2. 检查当前客户端是否不可用 (假设 BapRpcClient 有 isConnected() 方法，如果没有请自行添加或仅判断 null)
-        // 如果 BapRpcClient 没有 isConnected 方法，至少判断 activeClient == null
-        boolean needsReconnect = activeClient == null || configChanged;
+        BapRpcClient client = pooled.client;
+        if (client == null || !pooled.healthy) {
+            client = reconnect(pooled, uri, user, pwd);
+        } else if (pooled.lastUsed - pooled.lastHealthy > STALE_MS) {
+            // 心跳长时间未成功 (如电脑休眠唤醒后)，先照常返回，同时在后台补一次检测
+            AppExecutorUtil.getAppExecutorService().execute(() -> checkHealth(pooled));
+        }
+        return client;
+    }
 
-        if (activeClient != null && !configChanged) {
-            try {
-                // 假设有一个轻量级的方法检测连接，比如 activeClient.ping() 或 activeClient.isOpen()
-                 if (!activeClient.ping()) { needsReconnect = true; }
-            } catch (Exception e) {
-                needsReconnect = true;
+    /**
+     * 重连只锁住当前这一组连接参数，其他服务器的连接不受影响
+     */
+    private BapRpcClient reconnect(PooledClient pooled, String uri, String user, String pwd) {
+        synchronized (pooled) {
+            // 等待锁期间可能已被其他线程重连成功
+            if (pooled.client != null && pooled.healthy) return pooled.client;
+
+            long now = System.currentTimeMillis();
+            if (now < pooled.retryAt) {
+                // 仍在退避期内，直接返回上一次的错误，避免连续冲击服务器
+                throw new RuntimeException(BapBundle.message("error.connection_establish", pooled.lastError), pooled.lastException);
             }
-        }
 
-        if (needsReconnect) {
-            // 关闭旧连接
-            closeConnection();
+            if (pooled.client != null) {
+                closeQuietly(pooled.client);
+                pooled.client = null;
+            }
 
             // 创建新连接
+            BapRpcClient client = new BapRpcClient();
             try {
-                BapRpcClient client = new BapRpcClient();
                 client.connect(uri, user, pwd);
-
-                // 更新状态
-                this.activeClient = client;
-                this.currentUri = uri;
-                this.currentUser = user;
-                this.currentPwd = pwd;
-
             } catch (Exception e) {
                 // 连接失败，确保清理
-                closeConnection();
+                closeQuietly(client);
+                pooled.failures++;
+                long backoff = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(pooled.failures - 1, 16));
+                pooled.retryAt = System.currentTimeMillis() + backoff;
+                pooled.lastError = e.getMessage();
+                pooled.lastException = e;
                 throw new RuntimeException(BapBundle.message("error.connection_establish", e.getMessage()), e); // "无法建立 BAP 长连接: " + e.getMessage()
             }
+
+            pooled.failures = 0;
+            pooled.retryAt = 0;
+            pooled.lastError = null;
+            pooled.lastException = null;
+            pooled.lastHealthy = System.currentTimeMillis();
+            pooled.client = client;
+            pooled.healthy = true;
+            return client;
         }
+    }
+
+    private static String key(String uri, String user, String pwd) {
+        return uri + '\n' + user + '\n' + pwd;
+    }
 
-        return activeClient;
+    // 超出容量时关闭最久未使用的连接 (刚加入的 keepKey 与有调用进行中的连接除外；都在使用时暂时超出容量)
+    private void evictOverflow(String keepKey) {
+        while (clients.size() > MAX_CLIENTS) {
+            String eldestKey = null;
+            long eldest = Long.MAX_VALUE;
+            for (Map.Entry<String, PooledClient> e : clients.entrySet()) {
+                PooledClient pooled = e.getValue();
+                if (e.getKey().equals(keepKey) || pooled.isInUse()) continue;
+                long lastActive = pooled.lastActive();
+                if (lastActive < eldest) {
+                    eldest = lastActive;
+                    eldestKey = e.getKey();
+                }
+            }
+            if (eldestKey == null) return;
+            PooledClient removed = clients.remove(eldestKey);
+            if (removed != null) removed.closeWhenIdle();
+        }
     }
 
-    private void closeConnection() {
-        if (activeClient != null) {
+    /**
+     * 后台心跳：检测连接是否可用并记录最后一次成功时间，同时关闭空闲连接
+     */
+    private void heartbeat() {
+        long idleDeadline = System.currentTimeMillis() - IDLE_TIMEOUT_MS;
+        for (Map.Entry<String, PooledClient> e : clients.entrySet()) {
+            PooledClient pooled = e.getValue();
+            if (!pooled.isInUse() && pooled.lastActive() < idleDeadline) {
+                if (clients.remove(e.getKey(), pooled)) {
+                    LOG.info("Closing idle BAP connection");
+                    pooled.closeWhenIdle();
+                }
+                continue;
+            }
+
+            checkHealth(pooled);
+        }
+    }
+
+    private void checkHealth(PooledClient pooled) {
+        BapRpcClient client = pooled.client;
+        if (client == null || !pooled.healthy) return;
+        // 同一个连接同时只做一次检测
+        if (!pooled.checking.compareAndSet(false, true)) return;
+        try {
+            boolean alive;
             try {
-                activeClient.shutdown();
-            } catch (Exception e) {
-                // ignore
+                alive = client.ping();
+            } catch (Exception ex) {
+                alive = false;
+            }
+            if (alive) {
+                pooled.lastHealthy = System.currentTimeMillis();
+            } else if (pooled.client == client) {
+                // 只标记为不可用，下次使用时再重连
+                LOG.info("BAP connection heartbeat failed: " + client.getUri());
+                pooled.healthy = false;
             }
-            activeClient = null;
+        } finally {
+            pooled.checking.set(false);
+        }
+    }
+
+    private static void closeQuietly(BapRpcClient client) {
+        try {
+            client.shutdown();
+        } catch (Exception e) {
+            // ignore
         }
     }
 
     @Override
     public void dispose() {
         // 项目关闭时，IDEA 会自动调用此方法，释放连接
-        closeConnection();
+        heartbeatTask.cancel(false);
+        for (PooledClient pooled : clients.values()) {
+            pooled.close();
+        }
+        clients.clear();
     }
 
     // 提供静态方法方便获取
     public static BapConnectionManager getInstance(@NotNull Project project) {
         return project.getService(BapConnectionManager.class);
     }
-}
\ No newline at end of file
+
+    /**
+     * 一组连接参数对应的连接槽位
+     * client/healthy 的变更在槽位自身上同步；读取无需加锁
+     */
+    private static final class PooledClient {
+        volatile BapRpcClient client;
+        volatile boolean healthy;
+        volatile long lastUsed = System.currentTimeMillis();
+        // 最后一次确认连接可用的时间 (登录或心跳成功)
+        volatile long lastHealthy;
+        final AtomicBoolean checking = new AtomicBoolean();
+
+        // 以下字段只在 synchronized (this) 中访问
+        int failures;
+        long retryAt;
+        String lastError;
+        Exception lastException;
+
+        synchronized void close() {
+            healthy = false;
+            if (client != null) {
+                closeQuietly(client);
+                client = null;
+            }
+        }
+
+        // 回收槽位：连接上还有调用进行中时，等最后一个调用返回后再关闭
+        synchronized void closeWhenIdle() {
+            healthy = false;
+            if (client != null) {
+                try {
+                    client.shutdownWhenIdle();
+                } catch (Exception e) {
+                    // ignore
+                }
+                client = null;
+            }
+        }
+
+        boolean isInUse() {
+            BapRpcClient c = client;
+            return c != null && c.isInUse();
+        }
+
+        // 最后一次活动时间：取出连接或调用返回，取较晚的一个
+        long lastActive() {
+            BapRpcClient c = client;
+            return c == null ? lastUsed : Math.max(lastUsed, c.getLastCallTime());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.bap.dev.service;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 模块 .develop 配置文件的解析结果 (不可变)
+ * 属性不存在时对应字段为 null，与原先逐个 extractAttr 的结果一致。
+ */
+public final class BapDevelopConfig {
+
+    private static final Pattern URI = attrPattern("Uri");
+    private static final Pattern USER = attrPattern("User");
+    private static final Pattern PASSWORD = attrPattern("Password");
+    private static final Pattern PROJECT = attrPattern("Project");
+    private static final Pattern ADMIN_TOOL = attrPattern("AdminTool");
+
+    public final String uri;
+    public final String user;
+    public final String password;
+    public final String projectUuid;
+    public final String adminTool;
+
+    BapDevelopConfig(String uri, String user, String password, String projectUuid, String adminTool) {
+        this.uri = uri;
+        this.user = user;
+        this.password = password;
+        this.projectUuid = projectUuid;
+        this.adminTool = adminTool;
+    }
+
+    public static @NotNull BapDevelopConfig parse(@NotNull String content) {
+        return new BapDevelopConfig(
+                extract(URI, content),
+                extract(USER, content),
+                extract(PASSWORD, content),
+                extract(PROJECT, content),
+                extract(ADMIN_TOOL, content));
+    }
+
+    private static Pattern attrPattern(String attr) {
+        return Pattern.compile(attr + "=\"([^\"]*)\"");
+    }
+
+    private static String extract(Pattern pattern, String content) {
+        Matcher m = pattern.matcher(content);
+        return m.find() ? m.group(1) : null;
+    }
+}
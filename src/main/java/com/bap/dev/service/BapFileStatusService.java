@@ -1,17 +1,78 @@
 package com.bap.dev.service;
 
+import com.bap.dev.listener.BapChangesNotifier;
+import com.bap.dev.listener.BapChangesNotifier.StatusDelta;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
+/**
+ * 文件状态存储
+ * 除了按绝对路径的总表外，还按 模块根目录 -> 状态 -> 路径 分区保存，
+ * "某模块下所有 MODIFIED 文件" 这类查询只访问该模块的分区，不扫描其他模块。
+ * 读取总表不加锁，所有写入和分区读取在同一把锁下进行，保证两者一致。
+ * 每次写入产生的状态变化会合并成批，在后台线程通过 BapChangesNotifier.onStatusesChanged 按顺序发布。
+ * 项目关闭时把状态写入 IDE 的 system 目录，下次打开项目时立即恢复，
+ * 启动后的后台刷新照常进行，只发布与恢复的状态不同的部分。
+ */
 @Service(Service.Level.PROJECT)
-public final class BapFileStatusService {
+public final class BapFileStatusService implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(BapFileStatusService.class);
+
+    private static final int MAGIC = 0x42415053; // "BAPS"
+    private static final int VERSION = 2;
+
+    // 不属于任何已知模块的路径放在这个分区
+    private static final String NO_MODULE = "";
+
+    private final Project project;
     // 使用 ConcurrentHashMap 保证线程安全，Key 是文件的绝对路径
     private final Map<String, BapFileStatus> fileStatuses = new ConcurrentHashMap<>();
+    // 模块根目录路径 -> 分区，只在 synchronized 中访问
+    private final Map<String, ModulePartition> partitions = new HashMap<>();
+    // 分区增删时加一，用于判断 rootCache 是否过时
+    private volatile long partitionsVersion;
+    private volatile RootCache rootCache = new RootCache(-1, Collections.emptySet(), false);
+    // 本次打开项目后已经刷新过的模块，快照不再覆盖它们的状态，只在 synchronized 中访问
+    private final Set<String> liveModules = new HashSet<>();
+    // 尚未发布的状态变化 (路径 -> 变化)，只在 synchronized 中访问
+    private Map<String, StatusDelta> pendingDeltas = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    // 单线程执行，保证各批变化按写入顺序发布
+    private final ExecutorService deltaPublisher =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Bap Status Deltas", 1);
+
+    public BapFileStatusService(Project project) {
+        this.project = project;
+    }
 
     public static BapFileStatusService getInstance(Project project) {
         return project.getService(BapFileStatusService.class);
@@ -33,12 +94,12 @@ public final class BapFileStatusService {
      * 专门用于标记 "DELETED_LOCALLY" 这种本地文件不存在的情况
      */
     public void setStatus(String path, BapFileStatus status) {
-        if (path != null) {
-            if (status == BapFileStatus.NORMAL) {
-                fileStatuses.remove(path);
-            } else {
-                fileStatuses.put(path, status);
-            }
+        if (path == null) return;
+        // 在锁外查找所属模块，索引重建时可能访问 VFS
+        String moduleRoot = status == BapFileStatus.NORMAL ? null : findModuleRootPath(path);
+        synchronized (this) {
+            put(path, status, moduleRoot);
+            scheduleFlush();
         }
     }
 
@@ -54,12 +115,412 @@ public final class BapFileStatusService {
         return fileStatuses.getOrDefault(path, BapFileStatus.NORMAL);
     }
 
-    public void clearAll() {
-        fileStatuses.clear();
+    /**
+     * 🔴 新增：一次性替换若干目录下的全部状态
+     * 刷新时先在内存中算好所有目录的结果，再统一写入，避免界面看到刷新了一半的模块
+     * 只清理这些目录所在模块的分区，不扫描其他模块
+     * @param dirPaths 本次刷新的目录 (其下的旧状态会被清除)
+     * @param statuses 新的状态 (绝对路径 -> 状态)
+     */
+    public void replaceStatuses(Collection<String> dirPaths, Map<String, BapFileStatus> statuses) {
+        List<String> prefixes = new ArrayList<>();
+        Set<String> moduleRoots = new HashSet<>();
+        for (String dirPath : dirPaths) {
+            String prefix = dirPath.endsWith("/") ? dirPath : dirPath + "/";
+            prefixes.add(prefix);
+            String root = findModuleRootPath(prefix);
+            moduleRoots.add(root != null ? root : NO_MODULE);
+        }
+        Map<String, String> newRoots = new HashMap<>();
+        for (Map.Entry<String, BapFileStatus> entry : statuses.entrySet()) {
+            if (entry.getValue() != BapFileStatus.NORMAL) {
+                newRoots.put(entry.getKey(), findModuleRootPath(entry.getKey()));
+            }
+        }
+        // 之前找不到模块的路径同样在锁外重新查找
+        Map<String, String> orphanRoots = resolveOrphans();
+
+        synchronized (this) {
+            liveModules.addAll(moduleRoots);
+            adoptOrphans(orphanRoots);
+            for (String moduleRoot : moduleRoots) {
+                ModulePartition partition = partitions.get(moduleRoot);
+                if (partition == null) continue;
+                List<String> stale = new ArrayList<>();
+                for (Set<String> paths : partition.byStatus.values()) {
+                    for (String path : paths) {
+                        // 新结果中仍有状态的路径直接写入新状态，不经过 NORMAL，不加锁的读取方不会看到中间状态
+                        if (startsWithAny(path, prefixes) && !statuses.containsKey(path)) stale.add(path);
+                    }
+                }
+                for (String path : stale) {
+                    put(path, BapFileStatus.NORMAL, null);
+                }
+            }
+            statuses.forEach((path, status) -> put(path, status, newRoots.get(path)));
+            scheduleFlush();
+        }
+    }
+
+    public synchronized void clearAll() {
+        for (String path : new ArrayList<>(fileStatuses.keySet())) {
+            put(path, BapFileStatus.NORMAL, null);
+        }
+        partitions.clear();
+        scheduleFlush();
     }
 
     public Map<String, BapFileStatus> getAllStatuses() {
         // 返回不可修改的视图，防止外部直接修改 Map
         return Collections.unmodifiableMap(fileStatuses);
     }
-}
\ No newline at end of file
+
+    /**
+     * 文件所在模块是否有任何非 NORMAL 文件
+     * 供项目视图装饰等每次绘制都会调用的地方快速排除无变化的模块：
+     * 只沿 getParent() 向上比较有变化的模块根目录，不加锁、不分配对象
+     */
+    public boolean hasChangesUnder(VirtualFile file) {
+        if (file == null || fileStatuses.isEmpty()) return false;
+        RootCache cache = getRootCache();
+        if (cache.hasOrphans) return true;
+        for (VirtualFile dir = file; dir != null; dir = dir.getParent()) {
+            if (cache.roots.contains(dir)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 某模块下所有非 NORMAL 文件的状态 (副本)，只访问该模块的分区
+     * @param moduleRootPath 模块根目录路径 (VirtualFile.getPath() 格式)
+     */
+    public synchronized Map<String, BapFileStatus> getModuleStatuses(String moduleRootPath) {
+        ModulePartition partition = partitions.get(moduleRootPath);
+        if (partition == null) return Collections.emptyMap();
+        Map<String, BapFileStatus> result = new HashMap<>(partition.size() * 2);
+        partition.byStatus.forEach((status, paths) -> {
+            for (String path : paths) result.put(path, status);
+        });
+        return result;
+    }
+
+    /**
+     * 某模块下处于指定状态的文件路径 (副本)
+     */
+    public synchronized List<String> getPaths(String moduleRootPath, BapFileStatus status) {
+        ModulePartition partition = partitions.get(moduleRootPath);
+        if (partition == null) return Collections.emptyList();
+        Set<String> paths = partition.byStatus.get(status);
+        return paths == null ? Collections.emptyList() : new ArrayList<>(paths);
+    }
+
+    /**
+     * 某模块下处于指定状态的文件数
+     */
+    public synchronized int getCount(String moduleRootPath, BapFileStatus status) {
+        ModulePartition partition = partitions.get(moduleRootPath);
+        if (partition == null) return 0;
+        Set<String> paths = partition.byStatus.get(status);
+        return paths == null ? 0 : paths.size();
+    }
+
+    /**
+     * 某模块下所有非 NORMAL 文件数
+     */
+    public synchronized int getChangedCount(String moduleRootPath) {
+        ModulePartition partition = partitions.get(moduleRootPath);
+        return partition == null ? 0 : partition.size();
+    }
+
+    /**
+     * 🔴 启动时恢复上次关闭项目时保存的状态
+     * 恢复的状态同样作为增量发布，Bap Changes 等界面立即显示，随后的后台刷新再修正有变化的文件。
+     * 本次已经刷新过的模块和本地已不存在的模块不会恢复。
+     */
+    public void loadSnapshot() {
+        Path snapshotFile = getSnapshotFile();
+        if (!Files.exists(snapshotFile)) return;
+
+        // 模块根目录 -> (路径 -> 状态)
+        Map<String, Map<String, BapFileStatus>> modules = new HashMap<>();
+        BapFileStatus[] values = BapFileStatus.values();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                // 格式不兼容，直接丢弃旧快照
+                return;
+            }
+            int moduleCount = in.readInt();
+            for (int i = 0; i < moduleCount; i++) {
+                String root = in.readUTF();
+                int count = in.readInt();
+                Map<String, BapFileStatus> statuses = new HashMap<>(count * 4 / 3 + 1);
+                String prefix = root + "/";
+                for (int j = 0; j < count; j++) {
+                    String relativePath = in.readUTF();
+                    int ordinal = in.readUnsignedByte();
+                    if (ordinal < values.length) statuses.put(prefix + relativePath, values[ordinal]);
+                }
+                modules.put(root, statuses);
+            }
+        } catch (Exception e) {
+            // 快照损坏不影响功能，等待后台刷新即可
+            LOG.warn("Failed to load status snapshot: " + snapshotFile, e);
+            return;
+        }
+
+        synchronized (this) {
+            for (Map.Entry<String, Map<String, BapFileStatus>> module : modules.entrySet()) {
+                String root = module.getKey();
+                if (liveModules.contains(root) || !new File(root).isDirectory()) continue;
+                module.getValue().forEach((path, status) -> {
+                    // 本次已经单独写入过的文件以当前状态为准
+                    if (!fileStatuses.containsKey(path)) put(path, status, root);
+                });
+            }
+            scheduleFlush();
+        }
+    }
+
+    private void saveSnapshot() {
+        // 按模块分组，路径只保存相对模块根目录的部分；找不到模块的路径不保存
+        Map<String, Map<String, BapFileStatus>> modules;
+        synchronized (this) {
+            modules = new HashMap<>();
+            partitions.forEach((root, partition) -> {
+                if (NO_MODULE.equals(root)) return;
+                Map<String, BapFileStatus> statuses = new HashMap<>(partition.size() * 4 / 3 + 1);
+                partition.byStatus.forEach((status, paths) -> {
+                    for (String path : paths) statuses.put(path, status);
+                });
+                modules.put(root, statuses);
+            });
+        }
+
+        Path snapshotFile = getSnapshotFile();
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(modules.size());
+                for (Map.Entry<String, Map<String, BapFileStatus>> module : modules.entrySet()) {
+                    String root = module.getKey();
+                    out.writeUTF(root);
+                    out.writeInt(module.getValue().size());
+                    int prefixLength = root.length() + 1;
+                    for (Map.Entry<String, BapFileStatus> entry : module.getValue().entrySet()) {
+                        out.writeUTF(entry.getKey().substring(prefixLength));
+                        out.writeByte(entry.getValue().ordinal());
+                    }
+                }
+            }
+            // 先写临时文件再替换，避免 IDE 异常退出时留下半截快照
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            LOG.warn("Failed to save status snapshot: " + snapshotFile, e);
+        }
+    }
+
+    private Path getSnapshotFile() {
+        return Paths.get(PathManager.getSystemPath(), "bap-dev", "status-snapshot", project.getLocationHash() + ".bin");
+    }
+
+    @Override
+    public void dispose() {
+        // 项目关闭时写入磁盘
+        saveSnapshot();
+    }
+
+    // 调用方持有锁。同时维护总表和分区
+    private void put(String path, BapFileStatus status, String moduleRoot) {
+        BapFileStatus old = status == BapFileStatus.NORMAL ? fileStatuses.remove(path) : fileStatuses.put(path, status);
+        if (old == status || (old == null && status == BapFileStatus.NORMAL)) return;
+        recordDelta(path, old == null ? BapFileStatus.NORMAL : old, status);
+
+        if (old != null) {
+            String key = findPartition(path, old);
+            ModulePartition partition = partitions.get(key);
+            if (partition != null) {
+                partition.remove(path, old);
+                if (partition.size() == 0) {
+                    partitions.remove(key);
+                    partitionsVersion++;
+                }
+            }
+        }
+        if (status != BapFileStatus.NORMAL) {
+            String key = moduleRoot != null ? moduleRoot : NO_MODULE;
+            partitionOf(key).add(path, status);
+        }
+    }
+
+    // 调用方持有锁
+    private ModulePartition partitionOf(String moduleRoot) {
+        ModulePartition partition = partitions.get(moduleRoot);
+        if (partition == null) {
+            partition = new ModulePartition();
+            partitions.put(moduleRoot, partition);
+            partitionsVersion++;
+        }
+        return partition;
+    }
+
+    // 分区有增删时重新解析有变化的模块根目录，其余时候直接返回缓存
+    private RootCache getRootCache() {
+        RootCache cache = rootCache;
+        if (cache.version == partitionsVersion) return cache;
+
+        long version;
+        List<String> rootPaths;
+        synchronized (this) {
+            version = partitionsVersion;
+            rootPaths = new ArrayList<>(partitions.keySet());
+        }
+        Set<VirtualFile> roots = new HashSet<>();
+        boolean hasOrphans = false;
+        for (String rootPath : rootPaths) {
+            VirtualFile root = NO_MODULE.equals(rootPath) ? null : LocalFileSystem.getInstance().findFileByPath(rootPath);
+            if (root != null) {
+                roots.add(root);
+            } else {
+                // 找不到模块的路径无法按模块排除，保守地视为有变化
+                hasOrphans = true;
+            }
+        }
+        cache = new RootCache(version, Collections.unmodifiableSet(roots), hasOrphans);
+        rootCache = cache;
+        return cache;
+    }
+
+    // 调用方持有锁。同一路径在发布前多次变化时只保留最初和最终状态，变回原状态则不发布
+    private void recordDelta(String path, BapFileStatus oldStatus, BapFileStatus newStatus) {
+        StatusDelta previous = pendingDeltas.get(path);
+        BapFileStatus from = previous != null ? previous.oldStatus : oldStatus;
+        if (from == newStatus) {
+            pendingDeltas.remove(path);
+        } else {
+            pendingDeltas.put(path, new StatusDelta(path, from, newStatus));
+        }
+    }
+
+    // 调用方持有锁
+    private void scheduleFlush() {
+        if (flushScheduled || pendingDeltas.isEmpty()) return;
+        flushScheduled = true;
+        deltaPublisher.execute(this::flushDeltas);
+    }
+
+    private void flushDeltas() {
+        List<StatusDelta> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pendingDeltas.isEmpty()) return;
+            batch = new ArrayList<>(pendingDeltas.values());
+            pendingDeltas = new LinkedHashMap<>();
+        }
+        if (project.isDisposed()) return;
+        project.getMessageBus().syncPublisher(BapChangesNotifier.TOPIC).onStatusesChanged(Collections.unmodifiableList(batch));
+    }
+
+    // 调用方持有锁。由近到远检查各级上级目录的分区，都不包含时就在 NO_MODULE 中
+    private String findPartition(String path, BapFileStatus status) {
+        for (String dir = parentPath(path); dir != null; dir = parentPath(dir)) {
+            ModulePartition partition = partitions.get(dir);
+            if (partition != null && partition.contains(path, status)) return dir;
+        }
+        return NO_MODULE;
+    }
+
+    // 不持有锁。重新查找之前找不到模块的路径 (路径 -> 模块根目录)，只在锁内复制路径，查找模块索引时不持有锁
+    private Map<String, String> resolveOrphans() {
+        List<String> paths;
+        synchronized (this) {
+            ModulePartition orphans = partitions.get(NO_MODULE);
+            if (orphans == null) return Collections.emptyMap();
+            paths = new ArrayList<>(orphans.size());
+            for (Set<String> statusPaths : orphans.byStatus.values()) paths.addAll(statusPaths);
+        }
+        Map<String, String> roots = new HashMap<>();
+        for (String path : paths) {
+            String root = findModuleRootPath(path);
+            if (root != null) roots.put(path, root);
+        }
+        return roots;
+    }
+
+    // 调用方持有锁。模块索引重建后 (例如新导入了模块)，把之前找不到模块的路径移到 resolveOrphans 找到的分区
+    private void adoptOrphans(Map<String, String> roots) {
+        ModulePartition orphans = partitions.get(NO_MODULE);
+        if (orphans == null || roots.isEmpty()) return;
+        roots.forEach((path, root) -> {
+            // 查找期间状态可能已变化，只移动仍在 NO_MODULE 分区中的路径
+            BapFileStatus status = fileStatuses.get(path);
+            if (status == null || !orphans.contains(path, status)) return;
+            orphans.remove(path, status);
+            partitionOf(root).add(path, status);
+        });
+        if (orphans.size() == 0) {
+            partitions.remove(NO_MODULE);
+            partitionsVersion++;
+        }
+    }
+
+    private String findModuleRootPath(String path) {
+        if (project.isDisposed()) return null;
+        return BapModuleRootIndex.getInstance(project).findModuleRootPath(path);
+    }
+
+    private static boolean startsWithAny(String path, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static String parentPath(String path) {
+        int idx = path.lastIndexOf('/');
+        return idx > 0 ? path.substring(0, idx) : null;
+    }
+
+    private static final class RootCache {
+        final long version;
+        final Set<VirtualFile> roots;
+        final boolean hasOrphans;
+
+        RootCache(long version, Set<VirtualFile> roots, boolean hasOrphans) {
+            this.version = version;
+            this.roots = roots;
+            this.hasOrphans = hasOrphans;
+        }
+    }
+
+    /**
+     * 单个模块的状态分区，集合大小即为各状态的实时计数
+     */
+    private static final class ModulePartition {
+        final Map<BapFileStatus, Set<String>> byStatus = new EnumMap<>(BapFileStatus.class);
+        int size;
+
+        void add(String path, BapFileStatus status) {
+            if (byStatus.computeIfAbsent(status, k -> new HashSet<>()).add(path)) size++;
+        }
+
+        void remove(String path, BapFileStatus status) {
+            Set<String> paths = byStatus.get(status);
+            if (paths != null && paths.remove(path)) {
+                size--;
+                if (paths.isEmpty()) byStatus.remove(status);
+            }
+        }
+
+        boolean contains(String path, BapFileStatus status) {
+            Set<String> paths = byStatus.get(status);
+            return paths != null && paths.contains(path);
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
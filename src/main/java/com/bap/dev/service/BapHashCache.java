@@ -0,0 +1,297 @@
+package com.bap.dev.service;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Project 级别的本地文件 MD5 缓存
+ * Key 是文件绝对路径，只有长度和修改时间都没变时缓存才有效，
+ * 未修改的文件刷新时无需再读取内容计算 MD5。
+ * 缓存保存在 IDE 的 system 目录下，重启 IDE 后依然有效。
+ * 文件被删除、移动或改名时通过 VFS 事件移除对应条目；后台定期保存时再丢弃 IDE 关闭期间消失的文件，
+ * 超出上限时只保留最近使用的条目。项目关闭时只做写入，不再逐个检查文件。
+ */
+@Service(Service.Level.PROJECT)
+public final class BapHashCache implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(BapHashCache.class);
+
+    private static final int MAGIC = 0x42415048; // "BAPH"
+    private static final int VERSION = 2;
+    // 缓存条目上限，超出时按最近使用时间保留，其余不再写入磁盘
+    private static final int MAX_ENTRIES = 200_000;
+    // 后台定期保存的间隔 (同时清理已不存在的文件)，IDE 异常退出时最多丢失这段时间内的计算结果
+    private static final long SAVE_INTERVAL_MINUTES = 5;
+
+    private final Project project;
+    // 条目本身不可变，读操作无需加锁，可供并行刷新线程共享
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+    private volatile boolean dirty = false;
+    // 保证定期保存与项目关闭时的保存不会同时写同一个临时文件
+    private final Object saveLock = new Object();
+    private final ScheduledFuture<?> saveTask;
+
+    public BapHashCache(Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                onFileEvents(events);
+            }
+        });
+        this.saveTask = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(
+                () -> save(true), SAVE_INTERVAL_MINUTES, SAVE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static BapHashCache getInstance(@NotNull Project project) {
+        return project.getService(BapHashCache.class);
+    }
+
+    /**
+     * 获取有效的缓存条目
+     * @param text true=Java 源码 (标准化换行后的 MD5)，false=资源文件 (原始字节 MD5)
+     * @return 文件长度或修改时间已变化时返回 null
+     */
+    public @Nullable Entry get(@NotNull VirtualFile file, boolean text) {
+        ensureLoaded();
+        Entry entry = entries.get(file.getPath());
+        if (entry == null) return null;
+        entry.lastUsed = System.currentTimeMillis();
+        if (entry.text != text) return null;
+        if (entry.length != file.getLength() || entry.timeStamp != file.getTimeStamp()) return null;
+        return entry;
+    }
+
+    /**
+     * 写入缓存
+     * 注意：length 和 timeStamp 必须在读取文件内容之前获取，
+     * 这样读取期间文件被修改时，下次刷新会因时间戳不一致而重新计算。
+     */
+    public void put(@NotNull VirtualFile file, boolean text, long length, long timeStamp, boolean deleted, @Nullable String md5) {
+        ensureLoaded();
+        entries.put(file.getPath(), new Entry(text, length, timeStamp, deleted, md5, null, System.currentTimeMillis()));
+        dirty = true;
+    }
+
+    /**
+     * 获取缓存的宽松 MD5 (去除所有空白字符)，没有时返回 null
+     */
+    public @Nullable String getLooseMd5(@NotNull VirtualFile file) {
+        Entry entry = get(file, true);
+        return entry != null ? entry.looseMd5 : null;
+    }
+
+    /**
+     * 补充宽松 MD5，仅当缓存条目仍对应同一版本的文件时生效
+     */
+    public void putLooseMd5(@NotNull VirtualFile file, long length, long timeStamp, @NotNull String looseMd5) {
+        entries.computeIfPresent(file.getPath(), (path, old) -> {
+            if (!old.text || old.length != length || old.timeStamp != timeStamp) return old;
+            return new Entry(old.text, old.length, old.timeStamp, old.deleted, old.md5, looseMd5, System.currentTimeMillis());
+        });
+        dirty = true;
+    }
+
+    public void invalidate(@NotNull String path) {
+        if (entries.remove(path) != null) {
+            dirty = true;
+        }
+    }
+
+    // 删除、移动、改名的文件 (或其所在目录) 的条目不再有用，直接移除
+    private void onFileEvents(List<? extends VFileEvent> events) {
+        if (!loaded || entries.isEmpty()) return;
+        List<String> prefixes = new ArrayList<>();
+        for (VFileEvent event : events) {
+            String oldPath;
+            if (event instanceof VFileDeleteEvent) {
+                oldPath = event.getPath();
+            } else if (event instanceof VFileMoveEvent) {
+                oldPath = ((VFileMoveEvent) event).getOldPath();
+            } else if (event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename()) {
+                oldPath = ((VFilePropertyChangeEvent) event).getOldPath();
+            } else {
+                continue;
+            }
+            if (entries.remove(oldPath) != null) {
+                dirty = true;
+            } else {
+                // 目录：移除其下的所有条目
+                prefixes.add(oldPath + "/");
+            }
+        }
+        if (prefixes.isEmpty()) return;
+        if (entries.keySet().removeIf(path -> {
+            for (String prefix : prefixes) {
+                if (path.startsWith(prefix)) return true;
+            }
+            return false;
+        })) {
+            dirty = true;
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            load();
+            loaded = true;
+        }
+    }
+
+    private Path getCacheFile() {
+        return Paths.get(PathManager.getSystemPath(), "bap-dev", "hash-cache", project.getLocationHash() + ".bin");
+    }
+
+    private void load() {
+        Path cacheFile = getCacheFile();
+        if (!Files.exists(cacheFile)) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                // 格式不兼容，直接丢弃旧缓存
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                boolean text = in.readBoolean();
+                long length = in.readLong();
+                long timeStamp = in.readLong();
+                boolean deleted = in.readBoolean();
+                String md5 = readNullableUTF(in);
+                String looseMd5 = readNullableUTF(in);
+                long lastUsed = in.readLong();
+                entries.put(path, new Entry(text, length, timeStamp, deleted, md5, looseMd5, lastUsed));
+            }
+        } catch (Exception e) {
+            // 缓存损坏不影响功能，只是需要重新计算
+            LOG.warn("Failed to load hash cache: " + cacheFile, e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * @param prune 是否逐个检查并移除文件已不存在的条目 (只在后台定期保存时进行)
+     */
+    private void save(boolean prune) {
+        synchronized (saveLock) {
+            if (!loaded || !dirty) return;
+            if (prune) {
+                // VFS 事件覆盖不到的情况 (IDE 关闭期间删除的文件、被移除的模块)
+                entries.keySet().removeIf(path -> !new File(path).exists());
+            }
+            write();
+        }
+    }
+
+    // 调用方持有 saveLock
+    private void write() {
+        // 先清除标记：写入期间新增的条目会重新标记，留给下次保存
+        dirty = false;
+        List<Map.Entry<String, Entry>> live = new ArrayList<>(entries.entrySet());
+        if (live.size() > MAX_ENTRIES) {
+            // 超出上限时按最近使用时间从新到旧保留
+            live.sort(Comparator.comparingLong((Map.Entry<String, Entry> e) -> e.getValue().lastUsed).reversed());
+        }
+
+        Path cacheFile = getCacheFile();
+        Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                int count = Math.min(live.size(), MAX_ENTRIES);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(count);
+
+                for (int i = 0; i < count; i++) {
+                    Map.Entry<String, Entry> e = live.get(i);
+                    Entry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeBoolean(entry.text);
+                    out.writeLong(entry.length);
+                    out.writeLong(entry.timeStamp);
+                    out.writeBoolean(entry.deleted);
+                    writeNullableUTF(out, entry.md5);
+                    writeNullableUTF(out, entry.looseMd5);
+                    out.writeLong(entry.lastUsed);
+                }
+            }
+            // 先写临时文件再替换，避免 IDE 异常退出时留下半截缓存
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            dirty = true;
+            LOG.warn("Failed to save hash cache: " + cacheFile, e);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    @Override
+    public void dispose() {
+        // 项目关闭时写入磁盘 (清理已在后台定期进行，这里只写入)
+        saveTask.cancel(false);
+        save(false);
+    }
+
+    /**
+     * 缓存条目 (除 lastUsed 外不可变)
+     * deleted=true 表示空文件或只有空白字符的文件 (视为红D)，此时 md5 为 null
+     */
+    public static final class Entry {
+        public final boolean text;
+        public final long length;
+        public final long timeStamp;
+        public final boolean deleted;
+        public final String md5;
+        public final String looseMd5;
+        // 最近一次读取或写入的时间，保存时超出上限的部分按它淘汰
+        volatile long lastUsed;
+
+        Entry(boolean text, long length, long timeStamp, boolean deleted, String md5, String looseMd5, long lastUsed) {
+            this.text = text;
+            this.length = length;
+            this.timeStamp = timeStamp;
+            this.deleted = deleted;
+            this.md5 = md5;
+            this.looseMd5 = looseMd5;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.bap.dev.service;
+
+import bap.dev.FileDto;
+import bap.dev.JavaDto;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Project 级别的云端清单缓存
+ * 记录最近一次全量刷新时，每个 src 子目录在云端的文件列表 (相对路径 -> MD5)。
+ * 单文件增量刷新时直接与该清单比对，无需再向服务器查询整个目录。
+ * 清单记录了获取时的云端版本号，全量刷新时若云端版本未变化则直接复用，跳过大清单的传输；
+ * 提交代码后整个模块的清单失效。
+ * 清单只在最近一次确认 (获取或全量刷新时核对版本号) 后的 FRESH_MS 内用于增量刷新，
+ * 超过后视为过时，由全量刷新重新核对，避免长时间看不到其他人提交的代码。
+ */
+@Service(Service.Level.PROJECT)
+public final class BapManifestCache {
+
+    // 清单用于增量刷新的有效期
+    private static final long FRESH_MS = TimeUnit.MINUTES.toMillis(5);
+
+    // Key 是本地目录的绝对路径 (如 .../src/main)
+    private final Map<String, FolderManifest> folders = new ConcurrentHashMap<>();
+    // 云端代码的宽松 MD5 (去除空白字符)，Key 是 fullClass + "|" + 云端标准 MD5，云端代码不变时始终有效
+    private final Map<String, String> remoteLooseMd5s = new ConcurrentHashMap<>();
+    // 已确认云端不存在的资源，Key 是 projectUuid + "|" + 云端版本号 + "|" + 相对路径
+    private final Set<String> missingResources = ConcurrentHashMap.newKeySet();
+
+    public static BapManifestCache getInstance(@NotNull Project project) {
+        return project.getService(BapManifestCache.class);
+    }
+
+    public @Nullable FolderManifest getFolder(@NotNull String folderPath) {
+        return folders.get(folderPath);
+    }
+
+    /**
+     * 获取可用于增量刷新的清单：最近一次确认在 FRESH_MS 之内
+     * @return 清单不存在或已过时时返回 null (调用方应改为全量刷新)
+     */
+    public @Nullable FolderManifest getFreshFolder(@NotNull String folderPath) {
+        FolderManifest manifest = folders.get(folderPath);
+        if (manifest == null || System.currentTimeMillis() - manifest.checkedAt > FRESH_MS) return null;
+        return manifest;
+    }
+
+    /**
+     * 获取仍然有效的清单：工程相同且云端版本号未变化
+     * @param remoteVersion 当前云端版本号，为 null (查询失败) 时一律视为无效
+     */
+    public @Nullable FolderManifest getValidFolder(@NotNull String folderPath, @NotNull String projectUuid, @Nullable String remoteVersion) {
+        FolderManifest manifest = folders.get(folderPath);
+        if (manifest == null || remoteVersion == null) return null;
+        if (!projectUuid.equals(manifest.projectUuid) || !remoteVersion.equals(manifest.version)) return null;
+        // 版本号一致，清单重新确认为最新
+        manifest.checkedAt = System.currentTimeMillis();
+        return manifest;
+    }
+
+    public FolderManifest putJavaFolder(@NotNull String folderPath, @NotNull String projectUuid, @Nullable String version, @NotNull Map<String, JavaDto> cloudMap) {
+        Map<String, RemoteEntry> entries = new HashMap<>(cloudMap.size() * 4 / 3 + 1);
+        cloudMap.forEach((key, dto) -> entries.put(key, new RemoteEntry(dto.getMd5(), dto.getFullClass())));
+        FolderManifest manifest = new FolderManifest(projectUuid, version, entries);
+        folders.put(folderPath, manifest);
+        return manifest;
+    }
+
+    public FolderManifest putResFolder(@NotNull String folderPath, @NotNull String projectUuid, @Nullable String version, @NotNull Map<String, FileDto> cloudMap) {
+        Map<String, RemoteEntry> entries = new HashMap<>(cloudMap.size() * 4 / 3 + 1);
+        cloudMap.forEach((key, dto) -> entries.put(key, new RemoteEntry(dto.getMd5(), null)));
+        FolderManifest manifest = new FolderManifest(projectUuid, version, entries);
+        folders.put(folderPath, manifest);
+        // 云端版本已变化，旧版本下记录的不存在资源全部作废
+        String projectPrefix = projectUuid + "|";
+        String versionPrefix = projectPrefix + version + "|";
+        missingResources.removeIf(k -> k.startsWith(projectPrefix) && !k.startsWith(versionPrefix));
+        return manifest;
+    }
+
+    public boolean isKnownMissingResource(@NotNull String projectUuid, @Nullable String version, @NotNull String relativePath) {
+        return version != null && missingResources.contains(projectUuid + "|" + version + "|" + relativePath);
+    }
+
+    public void markMissingResource(@NotNull String projectUuid, @Nullable String version, @NotNull String relativePath) {
+        // 版本号未知时无法判断何时失效，不缓存
+        if (version != null) {
+            missingResources.add(projectUuid + "|" + version + "|" + relativePath);
+        }
+    }
+
+    public @Nullable String getRemoteLooseMd5(@NotNull String fullClass, @Nullable String remoteMd5) {
+        return remoteLooseMd5s.get(fullClass + "|" + remoteMd5);
+    }
+
+    public void putRemoteLooseMd5(@NotNull String fullClass, @Nullable String remoteMd5, @NotNull String looseMd5) {
+        remoteLooseMd5s.put(fullClass + "|" + remoteMd5, looseMd5);
+    }
+
+    /**
+     * 使模块下所有目录的清单失效 (如提交代码后云端 MD5 已变化)，下次变更时会触发全量刷新
+     */
+    public void invalidateModule(@NotNull String moduleRootPath) {
+        String prefix = moduleRootPath.endsWith("/") ? moduleRootPath : moduleRootPath + "/";
+        Set<String> projectUuids = new HashSet<>();
+        folders.entrySet().removeIf(e -> {
+            if (!e.getKey().startsWith(prefix)) return false;
+            projectUuids.add(e.getValue().projectUuid);
+            return true;
+        });
+        // 刚提交的资源可能已存在于云端
+        missingResources.removeIf(k -> projectUuids.contains(k.substring(0, k.indexOf('|'))));
+    }
+
+    public void clearAll() {
+        folders.clear();
+        remoteLooseMd5s.clear();
+        missingResources.clear();
+    }
+
+    /**
+     * 单个目录的云端清单 (除 checkedAt 外不可变)
+     */
+    public static final class FolderManifest {
+        public final String projectUuid;
+        // 获取清单时的云端版本号，null 表示未知
+        public final String version;
+        private final Map<String, RemoteEntry> entries;
+        // 最近一次确认清单与云端一致的时间 (获取时或全量刷新核对版本号时)
+        volatile long checkedAt;
+
+        FolderManifest(String projectUuid, String version, Map<String, RemoteEntry> entries) {
+            this.projectUuid = projectUuid;
+            this.version = version;
+            this.entries = Collections.unmodifiableMap(entries);
+            this.checkedAt = System.currentTimeMillis();
+        }
+
+        public @Nullable RemoteEntry get(String relativePath) {
+            return entries.get(relativePath);
+        }
+
+        public Map<String, RemoteEntry> getEntries() {
+            return entries;
+        }
+    }
+
+    /**
+     * 云端文件的摘要信息，fullClass 仅 Java 文件有值
+     */
+    public static final class RemoteEntry {
+        public final String md5;
+        public final String fullClass;
+
+        RemoteEntry(String md5, String fullClass) {
+            this.md5 = md5;
+            this.fullClass = fullClass;
+        }
+    }
+}
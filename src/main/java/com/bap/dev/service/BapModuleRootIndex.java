@@ -0,0 +1,110 @@
+package com.bap.dev.service;
+
+import bap.java.CJavaConst;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Project 级别的 Bap 模块根目录索引
+ * 由各模块的 Content Root 中带 .develop 的目录构建，按路径前缀查找文件所属模块，
+ * 不再逐级调用 findChild 遍历 VFS。供文档监听、VFS 监听等高频路径使用。
+ * 模块增删时 (BapModuleListener) 以及 .develop 新建、删除、移动或改名时 (BapConfigService) 失效，下次查询时重建。
+ */
+@Service(Service.Level.PROJECT)
+public final class BapModuleRootIndex {
+
+    private final Project project;
+    // Key 是模块根目录路径 (VirtualFile.getPath() 格式)，为 null 表示需要重建
+    private volatile Map<String, VirtualFile> roots;
+    // 每次失效加一，构建期间发生过失效的结果不保存
+    private final AtomicLong generation = new AtomicLong();
+
+    public BapModuleRootIndex(Project project) {
+        this.project = project;
+    }
+
+    public static BapModuleRootIndex getInstance(@NotNull Project project) {
+        return project.getService(BapModuleRootIndex.class);
+    }
+
+    /**
+     * 查找文件所属的 Bap 模块根目录
+     * @return 不属于任何已知 Bap 模块时返回 null
+     */
+    public @Nullable VirtualFile findModuleRoot(@Nullable VirtualFile file) {
+        if (file == null) return null;
+        String dirPath = file.isDirectory() ? file.getPath() : parentPath(file.getPath());
+        VirtualFile root = lookup(dirPath);
+        return root != null && root.isValid() ? root : null;
+    }
+
+    /**
+     * 按路径字符串查找所属模块根目录的路径，文件可以不存在 (例如本地已删除的文件)
+     * @return 不属于任何已知 Bap 模块时返回 null
+     */
+    public @Nullable String findModuleRootPath(@Nullable String filePath) {
+        if (filePath == null) return null;
+        VirtualFile root = lookup(parentPath(filePath));
+        return root != null ? root.getPath() : null;
+    }
+
+    private @Nullable VirtualFile lookup(@Nullable String dirPath) {
+        Map<String, VirtualFile> index = getRoots();
+        if (index.isEmpty()) return null;
+
+        // 从文件所在目录开始逐级截取路径前缀，每级只做一次哈希查找
+        String path = dirPath;
+        while (path != null) {
+            VirtualFile root = index.get(path);
+            if (root != null) return root;
+            path = parentPath(path);
+        }
+        return null;
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        roots = null;
+    }
+
+    private Map<String, VirtualFile> getRoots() {
+        Map<String, VirtualFile> index = roots;
+        if (index == null) {
+            long gen = generation.get();
+            index = build();
+            if (generation.get() == gen) {
+                roots = index;
+            }
+        }
+        return index;
+    }
+
+    private Map<String, VirtualFile> build() {
+        if (project.isDisposed()) return Collections.emptyMap();
+        Map<String, VirtualFile> index = new HashMap<>();
+        for (Module module : ModuleManager.getInstance(project).getModules()) {
+            for (VirtualFile root : ModuleRootManager.getInstance(module).getContentRoots()) {
+                if (root.findChild(CJavaConst.PROJECT_DEVELOP_CONF_FILE) != null) {
+                    index.put(root.getPath(), root);
+                }
+            }
+        }
+        return index;
+    }
+
+    private static String parentPath(String path) {
+        int idx = path.lastIndexOf('/');
+        return idx > 0 ? path.substring(0, idx) : null;
+    }
+}
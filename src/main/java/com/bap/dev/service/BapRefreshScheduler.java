@@ -0,0 +1,373 @@
+package com.bap.dev.service;
+
+import bap.java.CJavaConst;
+import com.bap.dev.handler.ProjectRefresher;
+import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.settings.BapSettingsState;
+import com.bap.dev.util.BapUtils;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Project 级别的刷新调度
+ * 所有模块刷新 (启动、模块添加、自动刷新、工具栏、提交/更新前后) 都经过这里：
+ * - 每个模块同时只有一个刷新在执行，执行期间到达的请求合并为一次后续刷新；
+ * - 全量刷新会取代正在执行的刷新 (取消后重新执行)，以及排队中的增量刷新；
+ * - 同时执行刷新的模块数受设置中的上限控制。
+ * 全量刷新显示在后台进度条中，增量刷新 (编辑/保存触发) 静默执行。
+ */
+@Service(Service.Level.PROJECT)
+public final class BapRefreshScheduler implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(BapRefreshScheduler.class);
+
+    // 同步等待刷新结果时检查取消状态的间隔
+    private static final long CANCEL_POLL_MS = 100;
+
+    private final Project project;
+
+    // 以下字段只在 synchronized (this) 中访问
+    private final Map<VirtualFile, ModuleSlot> slots = new HashMap<>();
+    private final Deque<ModuleSlot> ready = new ArrayDeque<>();
+    private int runningCount = 0;
+    private boolean disposed = false;
+
+    public BapRefreshScheduler(Project project) {
+        this.project = project;
+    }
+
+    public static BapRefreshScheduler getInstance(@NotNull Project project) {
+        return project.getService(BapRefreshScheduler.class);
+    }
+
+    /**
+     * 请求刷新整个模块
+     * @param silentMode true=出错时不弹窗；合并的请求中只要有一个非静默，本次刷新就不静默
+     * @return 覆盖本次请求的刷新完成时结束；刷新被用户取消时以 CancellationException 结束
+     */
+    public CompletableFuture<Void> scheduleRefresh(@NotNull VirtualFile moduleRoot, boolean silentMode) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        List<RefreshRun> toStart;
+        synchronized (this) {
+            if (disposed) {
+                future.cancel(false);
+                return future;
+            }
+            ModuleSlot slot = slots.computeIfAbsent(moduleRoot, ModuleSlot::new);
+            slot.fullPending = true;
+            slot.pendingLoud |= !silentMode;
+            slot.fullWaiters.add(future);
+            // 全量刷新会重新计算所有文件，排队中的增量刷新不再需要
+            slot.pendingFiles.clear();
+
+            RefreshRun running = slot.running;
+            if (running != null) {
+                // 正在执行的刷新已经过时，取消后由新的全量刷新接替
+                LOG.debug("Superseding running refresh of " + moduleRoot.getPath());
+                running.supersede();
+            } else {
+                enqueue(slot);
+            }
+            toStart = pump();
+        }
+        startAll(toStart);
+        return future;
+    }
+
+    /**
+     * 请求刷新项目中的所有 Bap 模块
+     */
+    public void scheduleRefreshAll() {
+        if (project.isDisposed()) return;
+
+        for (Module module : ModuleManager.getInstance(project).getModules()) {
+            // 只要根目录下有 .develop 文件，就认为是 Bap 模块
+            for (VirtualFile root : ModuleRootManager.getInstance(module).getContentRoots()) {
+                if (root.findChild(CJavaConst.PROJECT_DEVELOP_CONF_FILE) != null) {
+                    LOG.info(BapBundle.message("handler.ProjectRefresher.log.auto_refresh", module.getName())); // "Auto-refreshing module: " + module.getName()
+                    scheduleRefresh(root, true);
+                    // 一个模块刷新一次即可 (假设只有一个根是 Bap 根)
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 请求增量刷新指定文件 (编辑/保存触发)
+     * 按模块分组排队；模块已有全量刷新排队时直接忽略，由全量刷新覆盖
+     */
+    public void scheduleFileRefresh(@NotNull Collection<VirtualFile> files) {
+        Map<VirtualFile, List<VirtualFile>> filesByModule = new HashMap<>();
+        for (VirtualFile file : files) {
+            if (file == null || !file.isValid()) continue;
+            VirtualFile moduleRoot = BapUtils.findModuleRoot(project, file);
+            if (moduleRoot != null) {
+                filesByModule.computeIfAbsent(moduleRoot, k -> new ArrayList<>()).add(file);
+            }
+        }
+        if (filesByModule.isEmpty()) return;
+
+        List<RefreshRun> toStart;
+        synchronized (this) {
+            if (disposed) return;
+            for (Map.Entry<VirtualFile, List<VirtualFile>> entry : filesByModule.entrySet()) {
+                ModuleSlot slot = slots.computeIfAbsent(entry.getKey(), ModuleSlot::new);
+                if (slot.fullPending) continue;
+                slot.pendingFiles.addAll(entry.getValue());
+                // 正在执行的刷新可能已经读过这些文件的旧内容，等它结束后再执行
+                if (slot.running == null) {
+                    enqueue(slot);
+                }
+            }
+            toStart = pump();
+        }
+        startAll(toStart);
+    }
+
+    /**
+     * 请求全量刷新并在当前线程等待完成 (用于已在后台任务中、后续步骤依赖最新状态的操作)
+     * 当前进度条被取消时抛出 ProcessCanceledException，刷新本身继续执行
+     */
+    public void refreshAndWait(@NotNull VirtualFile moduleRoot, boolean silentMode) {
+        CompletableFuture<Void> future = scheduleRefresh(moduleRoot, silentMode);
+        while (true) {
+            try {
+                future.get(CANCEL_POLL_MS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                ProgressManager.checkCanceled();
+            } catch (CancellationException e) {
+                throw new ProcessCanceledException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessCanceledException(e);
+            } catch (ExecutionException e) {
+                // 刷新的错误已由 ProjectRefresher 处理 (弹窗或日志)，这里只需结束等待
+                LOG.warn("Refresh failed: " + moduleRoot.getPath(), e.getCause());
+                return;
+            }
+        }
+    }
+
+    // 必须在 synchronized (this) 中调用
+    private void enqueue(ModuleSlot slot) {
+        if (!slot.queued) {
+            slot.queued = true;
+            ready.add(slot);
+        }
+    }
+
+    // 在并发上限内取出可以开始的刷新，必须在 synchronized (this) 中调用；返回的刷新在锁外启动
+    private List<RefreshRun> pump() {
+        List<RefreshRun> toStart = new ArrayList<>();
+        int limit = Math.max(1, BapSettingsState.getInstance().maxConcurrentRefreshes);
+        while (runningCount < limit && !ready.isEmpty()) {
+            ModuleSlot slot = ready.poll();
+            slot.queued = false;
+            if (slot.running != null) continue;
+
+            RefreshRun run;
+            if (slot.fullPending) {
+                run = new RefreshRun(slot, null, !slot.pendingLoud, new ArrayList<>(slot.fullWaiters));
+                slot.fullPending = false;
+                slot.pendingLoud = false;
+                slot.fullWaiters.clear();
+            } else if (!slot.pendingFiles.isEmpty()) {
+                run = new RefreshRun(slot, new ArrayList<>(slot.pendingFiles), true, new ArrayList<>());
+                slot.pendingFiles.clear();
+            } else {
+                continue;
+            }
+            slot.running = run;
+            runningCount++;
+            toStart.add(run);
+        }
+        return toStart;
+    }
+
+    private void startAll(List<RefreshRun> runs) {
+        for (RefreshRun run : runs) {
+            start(run);
+        }
+    }
+
+    private void start(RefreshRun run) {
+        if (run.files == null) {
+            // 全量刷新：显示后台进度条，可由用户取消
+            ProgressManager.getInstance().run(new Task.Backgroundable(project, BapBundle.message("progress.refresh_module"), true) {
+                @Override
+                public void run(@NotNull ProgressIndicator indicator) {
+                    execute(run, indicator);
+                }
+            });
+        } else {
+            // 增量刷新：在后台线程静默执行
+            AppExecutorUtil.getAppExecutorService().execute(() ->
+                    ProgressManager.getInstance().runProcess(() -> execute(run, ProgressManager.getInstance().getProgressIndicator()), new EmptyProgressIndicator()));
+        }
+    }
+
+    private void execute(RefreshRun run, ProgressIndicator indicator) {
+        Throwable error = null;
+        try {
+            if (!run.attach(indicator) || project.isDisposed()) return;
+            ProjectRefresher refresher = new ProjectRefresher(project);
+            if (run.files == null) {
+                refresher.refreshModule(run.slot.moduleRoot, run.silentMode);
+            } else {
+                refresher.refreshFiles(run.files);
+            }
+        } catch (ProcessCanceledException e) {
+            // 取消的原因在 finished 中区分
+        } catch (Throwable t) {
+            LOG.warn("Refresh failed: " + run.slot.moduleRoot.getPath(), t);
+            error = t;
+        } finally {
+            finished(run, run.isCanceled() || (indicator != null && indicator.isCanceled()), error);
+        }
+    }
+
+    private void finished(RefreshRun run, boolean canceled, Throwable error) {
+        List<CompletableFuture<Void>> toComplete = new ArrayList<>();
+        List<RefreshRun> toStart;
+        synchronized (this) {
+            ModuleSlot slot = run.slot;
+            slot.running = null;
+            runningCount--;
+
+            if (run.superseded) {
+                // 被新的全量刷新取代：等待方转交给接替的刷新
+                slot.fullWaiters.addAll(run.waiters);
+            } else {
+                toComplete.addAll(run.waiters);
+            }
+
+            if (disposed) {
+                toComplete.addAll(slot.fullWaiters);
+                slot.fullWaiters.clear();
+            } else if (slot.fullPending || !slot.pendingFiles.isEmpty()) {
+                enqueue(slot);
+            } else {
+                slots.remove(slot.moduleRoot);
+            }
+            toStart = pump();
+        }
+        startAll(toStart);
+
+        for (CompletableFuture<Void> waiter : toComplete) {
+            if (error != null) {
+                waiter.completeExceptionally(error);
+            } else if (canceled && !run.superseded) {
+                waiter.cancel(false);
+            } else {
+                waiter.complete(null);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        List<RefreshRun> running = new ArrayList<>();
+        List<CompletableFuture<Void>> waiters = new ArrayList<>();
+        synchronized (this) {
+            disposed = true;
+            for (ModuleSlot slot : slots.values()) {
+                if (slot.running != null) running.add(slot.running);
+                waiters.addAll(slot.fullWaiters);
+                slot.fullWaiters.clear();
+                slot.pendingFiles.clear();
+                slot.fullPending = false;
+            }
+            ready.clear();
+        }
+        for (RefreshRun run : running) run.cancel();
+        for (CompletableFuture<Void> waiter : waiters) waiter.cancel(false);
+    }
+
+    /**
+     * 一个模块的排队状态
+     */
+    private static final class ModuleSlot {
+        final VirtualFile moduleRoot;
+        RefreshRun running;
+        boolean queued;
+        boolean fullPending;
+        boolean pendingLoud;
+        final List<CompletableFuture<Void>> fullWaiters = new ArrayList<>();
+        final Set<VirtualFile> pendingFiles = new LinkedHashSet<>();
+
+        ModuleSlot(VirtualFile moduleRoot) {
+            this.moduleRoot = moduleRoot;
+        }
+    }
+
+    /**
+     * 一次刷新的执行
+     */
+    private static final class RefreshRun {
+        final ModuleSlot slot;
+        // 为 null 表示全量刷新
+        final List<VirtualFile> files;
+        final boolean silentMode;
+        final List<CompletableFuture<Void>> waiters;
+        volatile boolean superseded;
+        private ProgressIndicator indicator;
+        private boolean canceled;
+
+        RefreshRun(ModuleSlot slot, List<VirtualFile> files, boolean silentMode, List<CompletableFuture<Void>> waiters) {
+            this.slot = slot;
+            this.files = files;
+            this.silentMode = silentMode;
+            this.waiters = waiters;
+        }
+
+        // 开始执行时登记进度条；已被取消时返回 false
+        synchronized boolean attach(ProgressIndicator indicator) {
+            this.indicator = indicator;
+            return !canceled;
+        }
+
+        void supersede() {
+            superseded = true;
+            cancel();
+        }
+
+        synchronized void cancel() {
+            canceled = true;
+            if (indicator != null) indicator.cancel();
+        }
+
+        synchronized boolean isCanceled() {
+            return canceled;
+        }
+    }
+}
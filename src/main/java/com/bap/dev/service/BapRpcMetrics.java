@@ -0,0 +1,198 @@
+package com.bap.dev.service;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Application 级别的 RPC 调用统计
+ * 按 服务器 + 方法 记录调用次数、失败次数、耗时分布 (p50/p95/p99) 和数据量，
+ * 由 BapRpcInstrumentation 在每次调用后写入，供 "Bap Metrics" 面板展示和导出。
+ * 只保存在内存中，重启 IDE 后清零。
+ */
+@Service
+public final class BapRpcMetrics {
+
+    // 耗时以微秒记录，保留 3 位有效数字
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<String, MethodStats> stats = new ConcurrentHashMap<>();
+    private volatile long startedAt = System.currentTimeMillis();
+
+    public static BapRpcMetrics getInstance() {
+        return ApplicationManager.getApplication().getService(BapRpcMetrics.class);
+    }
+
+    /**
+     * 记录一次调用
+     * @param server 服务器地址
+     * @param method RPC 方法名
+     * @param elapsedNanos 调用耗时
+     * @param requestBytes 参数的估算大小
+     * @param responseBytes 返回值的估算大小
+     * @param error 是否抛出了异常
+     */
+    public void record(String server, String method, long elapsedNanos, long requestBytes, long responseBytes, boolean error) {
+        String key = server + '\n' + method;
+        MethodStats s = stats.get(key);
+        if (s == null) {
+            s = stats.computeIfAbsent(key, k -> new MethodStats(server, method));
+        }
+        s.calls.increment();
+        if (error) s.errors.increment();
+        s.requestBytes.add(requestBytes);
+        s.responseBytes.add(responseBytes);
+        s.latencyMicros.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(elapsedNanos)));
+    }
+
+    /**
+     * 当前统计结果，按服务器、方法排序
+     */
+    public List<Snapshot> snapshot() {
+        List<Snapshot> result = new ArrayList<>(stats.size());
+        for (MethodStats s : stats.values()) {
+            result.add(s.snapshot());
+        }
+        result.sort(Comparator.comparing((Snapshot s) -> s.server).thenComparing(s -> s.method));
+        return result;
+    }
+
+    public void reset() {
+        stats.clear();
+        startedAt = System.currentTimeMillis();
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * 导出为 JSON，耗时单位为毫秒，数据量单位为字节
+     */
+    public String toJson() {
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"since\": ").append(quote(fmt.format(new Date(startedAt)))).append(",\n");
+        sb.append("  \"exportedAt\": ").append(quote(fmt.format(new Date()))).append(",\n");
+        sb.append("  \"calls\": [");
+        List<Snapshot> rows = snapshot();
+        for (int i = 0; i < rows.size(); i++) {
+            Snapshot s = rows.get(i);
+            sb.append(i == 0 ? "\n" : ",\n");
+            sb.append("    {")
+                    .append("\"server\": ").append(quote(s.server))
+                    .append(", \"method\": ").append(quote(s.method))
+                    .append(", \"count\": ").append(s.calls)
+                    .append(", \"errors\": ").append(s.errors)
+                    .append(", \"p50Ms\": ").append(s.p50Ms)
+                    .append(", \"p95Ms\": ").append(s.p95Ms)
+                    .append(", \"p99Ms\": ").append(s.p99Ms)
+                    .append(", \"maxMs\": ").append(s.maxMs)
+                    .append(", \"meanMs\": ").append(s.meanMs)
+                    .append(", \"requestBytes\": ").append(s.requestBytes)
+                    .append(", \"responseBytes\": ").append(s.responseBytes)
+                    .append('}');
+        }
+        sb.append(rows.isEmpty() ? "]\n" : "\n  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static final class MethodStats {
+        final String server;
+        final String method;
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder requestBytes = new LongAdder();
+        final LongAdder responseBytes = new LongAdder();
+        // 自动扩展范围，支持并发写入
+        final ConcurrentHistogram latencyMicros = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+
+        MethodStats(String server, String method) {
+            this.server = server;
+            this.method = method;
+        }
+
+        Snapshot snapshot() {
+            Histogram h = latencyMicros.copy();
+            return new Snapshot(server, method,
+                    calls.sum(), errors.sum(),
+                    toMs(h.getValueAtPercentile(50)),
+                    toMs(h.getValueAtPercentile(95)),
+                    toMs(h.getValueAtPercentile(99)),
+                    toMs(h.getMaxValue()),
+                    h.getTotalCount() == 0 ? 0 : Math.round(h.getMean()) / 1000.0,
+                    requestBytes.sum(), responseBytes.sum());
+        }
+
+        private static double toMs(long micros) {
+            return micros / 1000.0;
+        }
+    }
+
+    /**
+     * 某个服务器上某个方法的统计快照
+     */
+    public static final class Snapshot {
+        public final String server;
+        public final String method;
+        public final long calls;
+        public final long errors;
+        public final double p50Ms;
+        public final double p95Ms;
+        public final double p99Ms;
+        public final double maxMs;
+        public final double meanMs;
+        public final long requestBytes;
+        public final long responseBytes;
+
+        Snapshot(String server, String method, long calls, long errors,
+                 double p50Ms, double p95Ms, double p99Ms, double maxMs, double meanMs,
+                 long requestBytes, long responseBytes) {
+            this.server = server;
+            this.method = method;
+            this.calls = calls;
+            this.errors = errors;
+            this.p50Ms = p50Ms;
+            this.p95Ms = p95Ms;
+            this.p99Ms = p99Ms;
+            this.maxMs = maxMs;
+            this.meanMs = meanMs;
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+        }
+    }
+}
@@ -3,10 +3,14 @@ package com.bap.dev.settings;
 import com.bap.dev.activity.CheckUpdateActivity; // 引入检查更新类
 import com.bap.dev.i18n.BapBundle;
 import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vcs.FileStatusManager;
 import com.intellij.ui.CollectionListModel;
 import com.intellij.ui.ColorPanel;
 import com.intellij.ui.JBColor;
+import com.intellij.ui.JBIntSpinner;
 import com.intellij.ui.ToolbarDecorator;
 import com.intellij.ui.components.JBCheckBox;
 import com.intellij.ui.components.JBList;
@@ -28,6 +32,8 @@ public class BapSettingsConfigurable implements Configurable {
     private JBCheckBox checkUpdateCheckbox;
     private JBCheckBox showProjectNodeActionsCheckBox;
     private JBCheckBox showProjectTreeStatusCheckBox;
+    private JBCheckBox parallelRefreshCheckBox;
+    private JBIntSpinner maxConcurrentRefreshesSpinner;
 
     private ColorPanel modifiedColorPanel;
     private ColorPanel addedColorPanel;
@@ -80,6 +86,12 @@ public class BapSettingsConfigurable implements Configurable {
             }
         });
 
+        parallelRefreshCheckBox = new JBCheckBox(BapBundle.message("configurable.BapSettingsConfigurable.checkbox.parallel_refresh")); // "并行刷新源码目录"
+        parallelRefreshCheckBox.setToolTipText(BapBundle.message("configurable.BapSettingsConfigurable.tooltip.parallel_refresh"));
+
+        maxConcurrentRefreshesSpinner = new JBIntSpinner(2, 1, 16); // 同时刷新的模块数
+        maxConcurrentRefreshesSpinner.setToolTipText(BapBundle.message("configurable.BapSettingsConfigurable.tooltip.max_concurrent_refreshes"));
+
         checkUpdateCheckbox = new JBCheckBox(BapBundle.message("configurable.BapSettingsConfigurable.checkbox.check_update")); // "启动时自动检查更新"
         JButton checkUpdateBtn = new JButton(BapBundle.message("title.check_update")); // "检查更新"
         checkUpdateBtn.addActionListener(e -> {
@@ -113,6 +125,8 @@ public class BapSettingsConfigurable implements Configurable {
                 .addComponent(confirmCommitCheckbox) // 🔴 添加到面板
                 .addComponent(showProjectNodeActionsCheckBox) // 添加更新配置行
                 .addComponent(showProjectTreeStatusCheckBox) // 添加更新配置行
+                .addComponent(parallelRefreshCheckBox)
+                .addLabeledComponent(BapBundle.message("configurable.BapSettingsConfigurable.label.max_concurrent_refreshes"), maxConcurrentRefreshesSpinner) // "Max concurrent module refreshes:"
                 .addSeparator()
                 .addLabeledComponent(BapBundle.message("configurable.BapSettingsConfigurable.label.modified_color"), createColorRow(modifiedColorPanel, JBColor.YELLOW)) // "Modified color:"
                 .addLabeledComponent(BapBundle.message("configurable.BapSettingsConfigurable.label.added_color"), createColorRow(addedColorPanel, JBColor.BLUE))       // "Added color:"
@@ -144,18 +158,24 @@ public class BapSettingsConfigurable implements Configurable {
         boolean checkUpdateModified = checkUpdateCheckbox.isSelected() != settings.checkUpdateOnStartup;
         boolean showProjectNodeModified = showProjectNodeActionsCheckBox.isSelected() != settings.showProjectNodeActions;
         boolean showProjectTreeStatusModified = showProjectTreeStatusCheckBox.isSelected() != settings.showProjectTreeStatus;
+        boolean parallelRefreshModified = parallelRefreshCheckBox.isSelected() != settings.parallelRefresh;
+        boolean maxConcurrentRefreshesModified = maxConcurrentRefreshesSpinner.getNumber() != settings.maxConcurrentRefreshes;
 
         List<String> currentStoredUris = settings.loginHistory.stream()
                 .map(p -> p.uri)
                 .collect(Collectors.toList());
         boolean listModified = !uriListModel.getItems().equals(currentStoredUris);
 
-        boolean colorModified = !isColorEqual(modifiedColorPanel.getSelectedColor(), settings.getModifiedColorObj()) ||
-                !isColorEqual(addedColorPanel.getSelectedColor(), settings.getAddedColorObj()) ||
-                !isColorEqual(deletedColorPanel.getSelectedColor(), settings.getDeletedColorObj());
+        boolean colorModified = isStatusColorModified(settings);
 
         return compileOnPublishModified || autoRefreshModified || confirmCommitModified || checkUpdateModified ||
-                showProjectNodeModified || showProjectTreeStatusModified || listModified || colorModified;
+                showProjectNodeModified || showProjectTreeStatusModified || parallelRefreshModified || maxConcurrentRefreshesModified || listModified || colorModified;
+    }
+
+    private boolean isStatusColorModified(BapSettingsState settings) {
+        return !isColorEqual(modifiedColorPanel.getSelectedColor(), settings.getModifiedColorObj()) ||
+                !isColorEqual(addedColorPanel.getSelectedColor(), settings.getAddedColorObj()) ||
+                !isColorEqual(deletedColorPanel.getSelectedColor(), settings.getDeletedColorObj());
     }
 
     private boolean isColorEqual(Color c1, Color c2) {
@@ -167,6 +187,9 @@ public class BapSettingsConfigurable implements Configurable {
     @Override
     public void apply() {
         BapSettingsState settings = BapSettingsState.getInstance();
+        // 开关或颜色变化后，平台缓存的文件状态需要重新计算
+        boolean statusStyleChanged = settings.showProjectTreeStatus != showProjectTreeStatusCheckBox.isSelected()
+                || isStatusColorModified(settings);
 
         settings.compileOnPublish = compileOnPublishCheckbox.isSelected();
         settings.autoRefresh = autoRefreshCheckbox.isSelected();
@@ -174,6 +197,8 @@ public class BapSettingsConfigurable implements Configurable {
         settings.checkUpdateOnStartup = checkUpdateCheckbox.isSelected();
         settings.showProjectNodeActions = showProjectNodeActionsCheckBox.isSelected();
         settings.showProjectTreeStatus = showProjectTreeStatusCheckBox.isSelected();
+        settings.parallelRefresh = parallelRefreshCheckBox.isSelected();
+        settings.maxConcurrentRefreshes = maxConcurrentRefreshesSpinner.getNumber();
 
         List<String> uiUris = uriListModel.getItems();
         List<BapSettingsState.LoginProfile> newHistory = new ArrayList<>();
@@ -190,6 +215,12 @@ public class BapSettingsConfigurable implements Configurable {
         if (modifiedColorPanel.getSelectedColor() != null) settings.setModifiedColorObj(modifiedColorPanel.getSelectedColor());
         if (addedColorPanel.getSelectedColor() != null) settings.setAddedColorObj(addedColorPanel.getSelectedColor());
         if (deletedColorPanel.getSelectedColor() != null) settings.setDeletedColorObj(deletedColorPanel.getSelectedColor());
+
+        if (statusStyleChanged) {
+            for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+                if (!project.isDisposed()) FileStatusManager.getInstance(project).fileStatusesChanged();
+            }
+        }
     }
 
     @Override
@@ -202,6 +233,8 @@ public class BapSettingsConfigurable implements Configurable {
         checkUpdateCheckbox.setSelected(settings.checkUpdateOnStartup);
         showProjectNodeActionsCheckBox.setSelected(settings.showProjectNodeActions);
         showProjectTreeStatusCheckBox.setSelected(settings.showProjectTreeStatus);
+        parallelRefreshCheckBox.setSelected(settings.parallelRefresh);
+        maxConcurrentRefreshesSpinner.setNumber(settings.maxConcurrentRefreshes);
 
         uriListModel.removeAll();
         List<String> uris = settings.loginHistory.stream()
@@ -224,6 +257,8 @@ public class BapSettingsConfigurable implements Configurable {
         checkUpdateCheckbox = null;
         showProjectNodeActionsCheckBox = null;
         showProjectTreeStatusCheckBox = null;
+        parallelRefreshCheckBox = null;
+        maxConcurrentRefreshesSpinner = null;
         modifiedColorPanel = null;
         addedColorPanel = null;
         deletedColorPanel = null;
@@ -27,6 +27,9 @@ public class BapSettingsState implements PersistentStateComponent<BapSettingsSta
     public boolean showProjectNodeActions = true;
     public boolean flattenPackages = true;
     public boolean showProjectTreeStatus = false;
+    public boolean parallelRefresh = true;
+    // 同时刷新的模块数上限 (同一模块始终只有一个刷新在执行)
+    public int maxConcurrentRefreshes = 2;
     public List<LoginProfile> loginHistory = new ArrayList<>();
     public Map<String, List<RelocateProfile>> moduleRelocateHistory = new HashMap<>();
     public int modifiedColor = JBColor.YELLOW.getRGB();
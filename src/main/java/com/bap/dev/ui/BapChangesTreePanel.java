@@ -1,26 +1,26 @@
 package com.bap.dev.ui;
 
 import bap.java.CJavaConst;
-import com.bap.dev.handler.ProjectRefresher;
 import com.bap.dev.i18n.BapBundle;
 import com.bap.dev.listener.BapChangesNotifier;
 import com.bap.dev.service.BapFileStatus;
 import com.bap.dev.service.BapFileStatusService;
+import com.bap.dev.service.BapModuleRootIndex;
+import com.bap.dev.service.BapRefreshScheduler;
 import com.bap.dev.settings.BapSettingsState;
 import com.intellij.icons.AllIcons;
 import com.intellij.ide.DataManager;
-import com.intellij.ide.util.treeView.TreeState;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileTypes.FileTypeManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.module.ModuleUtil;
-import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
-import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.ui.SimpleToolWindowPanel;
@@ -36,6 +36,8 @@ import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.treeStructure.Tree;
 // 🔴 修复：TreeUtil 的正确包路径 (IntelliJ 2020+)
 import com.intellij.util.ui.tree.TreeUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.containers.Interner;
 import com.intellij.util.ui.UIUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -52,6 +54,8 @@ import java.awt.event.MouseEvent;
 import java.io.File;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class BapChangesTreePanel extends SimpleToolWindowPanel implements Disposable {
 
@@ -60,6 +64,18 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
     private final Project project;
     private final Tree tree;
     private final DefaultTreeModel treeModel;
+    // 最近一次应用到树上的状态和模块：只在 EDT 上整体替换，后台计算时只读
+    private volatile Map<String, BapFileStatus> appliedStatuses = Collections.emptyMap();
+    private volatile List<ModuleWrapper> appliedModules = Collections.emptyList();
+    // 文件路径 -> 文件节点，只在 EDT 上访问
+    private final Map<String, DefaultMutableTreeNode> fileNodes = new HashMap<>();
+    // 状态变化后尚未应用到树上的路径 (路径 -> 序号)，序号用于判断应用时是否又发生了新的变化
+    private final Map<String, Long> dirtyPaths = new ConcurrentHashMap<>();
+    private final AtomicLong dirtySeq = new AtomicLong();
+    // 分组节点 -> (相对目录路径 -> 目录节点)，查找目录无需遍历子节点，只在 EDT 上访问
+    private final Map<DefaultMutableTreeNode, Map<String, DefaultMutableTreeNode>> dirIndex = new HashMap<>();
+    // 目录路径和目录名在大量文件间重复，统一复用同一个字符串实例
+    private final Interner<String> pathInterner = Interner.createWeakInterner();
 
     public BapChangesTreePanel(Project project) {
         super(true, true);
@@ -102,6 +118,14 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
             public void onChangesUpdated() {
                 rebuildTree();
             }
+
+            @Override
+            public void onStatusesChanged(List<BapChangesNotifier.StatusDelta> deltas) {
+                for (BapChangesNotifier.StatusDelta delta : deltas) {
+                    dirtyPaths.put(delta.path, dirtySeq.incrementAndGet());
+                }
+                rebuildTree();
+            }
         });
 
         rebuildTree();
@@ -223,103 +247,275 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
     public void dispose() {
     }
 
+    /**
+     * 在后台线程根据状态变化计算需要增删的节点，再到 EDT 上逐个插入/删除节点
+     * 不再整棵树重建，未变化的节点 (以及它们的展开状态) 保持不动
+     */
     private void rebuildTree() {
-        ApplicationManager.getApplication().invokeLater(() -> {
-            if (project.isDisposed()) return;
+        Map<String, BapFileStatus> base = appliedStatuses;
+        List<ModuleWrapper> baseModules = appliedModules;
+        ReadAction.nonBlocking(() -> computeUpdate(base, baseModules))
+                .coalesceBy(this)
+                .expireWith(this)
+                .finishOnUiThread(ModalityState.NON_MODAL, this::applyUpdate)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
 
-            TreeState state = TreeState.createOn(tree);
+    /**
+     * 清空整棵树后重新构建 (树的结构本身变化时使用，如切换扁平化显示)
+     */
+    private void resetTree() {
+        DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
+        root.removeAllChildren();
+        treeModel.reload();
+        fileNodes.clear();
+        dirIndex.clear();
+        appliedStatuses = Collections.emptyMap();
+        appliedModules = Collections.emptyList();
+        rebuildTree();
+    }
 
-            DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
-            root.removeAllChildren();
+    // 后台线程：与上一次应用的状态比较，得出需要删除和新增的文件节点
+    // 模块列表未变化时只检查收到状态变化的路径，否则按模块分区全量比较
+    private TreeUpdate computeUpdate(Map<String, BapFileStatus> base, List<ModuleWrapper> baseModules) {
+        // 先取变化路径的快照，再读取状态，快照之后的变化留给下一次更新
+        Map<String, Long> dirty = new HashMap<>(dirtyPaths);
+        List<ModuleWrapper> modules = findAllBapModules();
+        modules.sort(Comparator.comparing(m -> m.name));
+        boolean full = base.isEmpty() || !modules.equals(baseModules);
+
+        BapFileStatusService statusService = BapFileStatusService.getInstance(project);
+        Map<String, BapFileStatus> next;
+        // 需要检查的路径及其所属模块，不属于任何模块的路径本来就没有节点
+        Map<String, ModuleWrapper> owners = new HashMap<>();
+        if (full) {
+            // 逐个模块读取其分区
+            next = new HashMap<>();
+            for (ModuleWrapper module : modules) {
+                Map<String, BapFileStatus> moduleStatuses = statusService.getModuleStatuses(module.rootFile.getPath());
+                next.putAll(moduleStatuses);
+                for (String path : moduleStatuses.keySet()) owners.put(path, module);
+            }
+        } else {
+            next = new HashMap<>(base);
+            Map<String, ModuleWrapper> modulesByRoot = new HashMap<>();
+            for (ModuleWrapper module : modules) modulesByRoot.put(module.rootFile.getPath(), module);
+            BapModuleRootIndex rootIndex = BapModuleRootIndex.getInstance(project);
+            for (String path : dirty.keySet()) {
+                BapFileStatus status = statusService.getStatus(path);
+                String rootPath = status == BapFileStatus.NORMAL ? null : rootIndex.findModuleRootPath(path);
+                ModuleWrapper module = rootPath == null ? null : modulesByRoot.get(rootPath);
+                if (module == null) {
+                    next.remove(path);
+                } else {
+                    next.put(path, status);
+                    owners.put(path, module);
+                }
+            }
+        }
 
-            List<ModuleWrapper> bapModules = findAllBapModules();
-            bapModules.sort(Comparator.comparing(m -> m.name));
+        // 新出现的模块：其下所有文件都需要建立节点
+        Set<ModuleWrapper> newModules = new HashSet<>(modules);
+        newModules.removeAll(baseModules);
+
+        List<FileAddition> added = new ArrayList<>();
+        // 找不到本地文件的路径没有节点，不计入已应用状态，下次更新时再尝试
+        List<String> skipped = new ArrayList<>();
+        for (Map.Entry<String, ModuleWrapper> entry : owners.entrySet()) {
+            ProgressManager.checkCanceled();
+            String path = entry.getKey();
+            ModuleWrapper module = entry.getValue();
+            BapFileStatus status = next.get(path);
+            if (base.get(path) == status && !newModules.contains(module)) continue;
+
+            VirtualFileWrapper wrapper = createWrapper(module, path, status);
+            if (wrapper != null) {
+                String dirPath = pathInterner.intern(getRelativeDirectory(module.rootFile, path));
+                String name = wrapper.file.getName();
+                wrapper.sortKey = dirPath.isEmpty() ? name : dirPath + "/" + name;
+                added.add(new FileAddition(module, wrapper, dirPath));
+            } else {
+                skipped.add(path);
+            }
+        }
+        for (String path : skipped) next.remove(path);
 
-            Map<String, BapFileStatus> statuses = BapFileStatusService.getInstance(project).getAllStatuses();
+        List<String> removed = new ArrayList<>();
+        for (String path : full ? base.keySet() : dirty.keySet()) {
+            BapFileStatus old = base.get(path);
+            if (old != null && next.get(path) != old) {
+                removed.add(path);
+            }
+        }
+        // 按与兄弟节点相同的排序键依次插入，新节点大多追加在末尾
+        added.sort(Comparator.comparing(a -> a.wrapper.sortKey));
 
-            for (ModuleWrapper moduleWrapper : bapModules) {
-                DefaultMutableTreeNode moduleNode = new DefaultMutableTreeNode(moduleWrapper);
-                root.add(moduleNode);
+        return new TreeUpdate(base, baseModules, Collections.unmodifiableMap(next), modules, removed, added, dirty, skipped);
+    }
 
-                Map<BapFileStatus, List<VirtualFileWrapper>> moduleChanges = new HashMap<>(); // 🔴 List<VirtualFileWrapper>
+    private VirtualFileWrapper createWrapper(ModuleWrapper module, String path, BapFileStatus status) {
+        if (status == BapFileStatus.DELETED_LOCALLY) {
+            // 🔴 创建“带父级”的虚拟文件
+            File ioFile = new File(path);
+            String fileName = ioFile.getName();
+            var fileType = FileTypeManager.getInstance().getFileTypeByFileName(fileName);
 
-                if (!statuses.isEmpty()) {
-                    for (Map.Entry<String, BapFileStatus> entry : statuses.entrySet()) {
-                        String path = entry.getKey();
-                        BapFileStatus status = entry.getValue();
-                        if (status == BapFileStatus.NORMAL) continue;
+            // 1. 寻找最近的存在的物理父目录
+            // 因为文件删了，可能连父文件夹也删了，所以要向上查找直到找到存在的目录
+            VirtualFile bestParent = findBestPhysicalParent(new File(ioFile.getParent()));
 
-                        if (path.startsWith(moduleWrapper.rootFile.getPath())) {
+            // 如果实在找不到(极少见)，就用模块根目录兜底
+            if (bestParent == null) bestParent = module.rootFile;
 
-                            // --- 🔴 核心修改开始 ---
-                            VirtualFileWrapper wrapper = null;
+            // 2. 创建自定义虚拟文件
+            VirtualFile fakeFile = new BapDeletedVirtualFile(fileName, fileType, path, bestParent);
+            return new VirtualFileWrapper(fakeFile, path, status);
+        }
+        // 普通文件：查找本地文件
+        VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
+        return file != null ? new VirtualFileWrapper(file, path, status) : null;
+    }
 
-                            if (status == BapFileStatus.DELETED_LOCALLY) {
-                                // 🔴 修改开始：创建“带父级”的虚拟文件
-                                File ioFile = new File(path);
-                                String fileName = ioFile.getName();
-                                var fileType = FileTypeManager.getInstance().getFileTypeByFileName(fileName);
+    // EDT：把计算好的变化应用到树模型上
+    private void applyUpdate(TreeUpdate update) {
+        if (project.isDisposed()) return;
+        if (update.base != appliedStatuses || update.baseModules != appliedModules) {
+            // 计算期间树已被其他更新修改过，基于最新状态重新计算
+            rebuildTree();
+            return;
+        }
 
-                                // 1. 寻找最近的存在的物理父目录
-                                // 因为文件删了，可能连父文件夹也删了，所以要向上查找直到找到存在的目录
-                                VirtualFile bestParent = findBestPhysicalParent(new File(ioFile.getParent()));
+        // 已处理的变化路径出队 (处理期间再次变化的保留)，暂时无法建立节点的路径留待下次重试
+        update.dirty.forEach(dirtyPaths::remove);
+        for (String path : update.skipped) {
+            dirtyPaths.putIfAbsent(path, dirtySeq.incrementAndGet());
+        }
 
-                                // 如果实在找不到(极少见)，就用模块根目录兜底
-                                if (bestParent == null) bestParent = moduleWrapper.rootFile;
+        DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
+        Map<ModuleWrapper, DefaultMutableTreeNode> moduleNodes = reconcileModules(root, update.modules);
+        Set<DefaultMutableTreeNode> touchedCategories = new HashSet<>();
+
+        // 1. 删除状态已变化或已恢复正常的文件节点
+        for (String path : update.removed) {
+            DefaultMutableTreeNode node = fileNodes.remove(path);
+            if (node == null || node.getParent() == null) continue;
+            DefaultMutableTreeNode parent = (DefaultMutableTreeNode) node.getParent();
+            treeModel.removeNodeFromParent(node);
+
+            // 清理变空的目录节点 (同时移出目录索引)
+            while (parent.getUserObject() instanceof DirectoryWrapper && parent.getChildCount() == 0) {
+                DefaultMutableTreeNode next = (DefaultMutableTreeNode) parent.getParent();
+                Map<String, DefaultMutableTreeNode> index = dirIndex.get(findCategoryNode(next));
+                if (index != null) index.remove(((DirectoryWrapper) parent.getUserObject()).path);
+                treeModel.removeNodeFromParent(parent);
+                parent = next;
+            }
+            if (parent.getUserObject() instanceof CategoryWrapper) {
+                ((CategoryWrapper) parent.getUserObject()).count--;
+                if (parent.getChildCount() == 0) {
+                    treeModel.removeNodeFromParent(parent);
+                    dirIndex.remove(parent);
+                    touchedCategories.remove(parent);
+                } else {
+                    touchedCategories.add(parent);
+                }
+            }
+        }
 
-                                // 2. 创建自定义虚拟文件
-                                VirtualFile fakeFile = new BapDeletedVirtualFile(fileName, fileType, path, bestParent);
+        // 2. 插入新的文件节点
+        boolean isFlat = BapSettingsState.getInstance().flattenPackages;
+        for (FileAddition addition : update.added) {
+            VirtualFileWrapper wrapper = addition.wrapper;
+            DefaultMutableTreeNode moduleNode = moduleNodes.get(addition.module);
+            if (moduleNode == null || fileNodes.containsKey(wrapper.absolutePath)) continue;
+
+            DefaultMutableTreeNode categoryNode = findOrCreateCategory(moduleNode, wrapper.status);
+            // 相对目录路径 (已去除 src) 在后台计算好，这里只做索引查找
+            DefaultMutableTreeNode parentNode = findOrCreateDir(categoryNode, addition.dirPath, isFlat);
+
+            DefaultMutableTreeNode fileNode = new DefaultMutableTreeNode(wrapper);
+            insertSorted(parentNode, fileNode);
+            fileNodes.put(wrapper.absolutePath, fileNode);
+            ((CategoryWrapper) categoryNode.getUserObject()).count++;
+            touchedCategories.add(categoryNode);
+        }
 
-                                wrapper = new VirtualFileWrapper(fakeFile, path, status);
-                                // 🔴 修改结束
-                            } else {
-                                // 普通文件：查找本地文件
-                                VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
-                                if (file != null) {
-                                    wrapper = new VirtualFileWrapper(file, path, status);
-                                }
-                            }
+        // 3. 分组标题中的数量
+        for (DefaultMutableTreeNode categoryNode : touchedCategories) {
+            if (categoryNode.getParent() == null) continue;
+            ((CategoryWrapper) categoryNode.getUserObject()).updateTitle();
+            treeModel.nodeChanged(categoryNode);
+        }
 
-                            if (wrapper != null) {
-                                moduleChanges.computeIfAbsent(status, k -> new ArrayList<>()).add(wrapper);
-                            }
-                            // --- 🔴 核心修改结束 ---
-                        }
-                    }
-                }
+        appliedStatuses = update.next;
+        appliedModules = update.modules;
 
-                if (!moduleChanges.isEmpty()) {
-                    addStatusCategory(moduleNode, moduleChanges, BapFileStatus.MODIFIED, BapBundle.message("status.modified"), moduleWrapper.rootFile);
-                    addStatusCategory(moduleNode, moduleChanges, BapFileStatus.ADDED, BapBundle.message("status.added"), moduleWrapper.rootFile);
-                    addStatusCategory(moduleNode, moduleChanges, BapFileStatus.DELETED_LOCALLY, BapBundle.message("status.deleted"), moduleWrapper.rootFile);
+        // 首次构建 (没有任何展开的节点) 时默认展开全部
+        if (!hasExpandedModule(root)) {
+            for (int i = 0; i < tree.getRowCount(); i++) {
+                TreePath path = tree.getPathForRow(i);
+                DefaultMutableTreeNode node = (DefaultMutableTreeNode) path.getLastPathComponent();
+                if (node.getChildCount() > 0) {
+                    tree.expandRow(i);
                 }
             }
+        }
 
-            treeModel.reload();
-            state.applyTo(tree);
+        VirtualFile targetModule = project.getUserData(LAST_BAP_MODULE_ROOT);
+        if (targetModule != null) {
+            project.putUserData(LAST_BAP_MODULE_ROOT, null);
+            DefaultMutableTreeNode targetNode = findModuleNode(root, targetModule);
+            if (targetNode != null) {
+                TreePath path = new TreePath(targetNode.getPath());
+                tree.setSelectionPath(path);
+                tree.scrollPathToVisible(path);
+                tree.expandPath(path);
+            }
+        }
+    }
 
-            if (state.isEmpty()) {
-                for (int i = 0; i < tree.getRowCount(); i++) {
-                    TreePath path = tree.getPathForRow(i);
-                    DefaultMutableTreeNode node = (DefaultMutableTreeNode) path.getLastPathComponent();
-                    if (node.getChildCount() > 0) {
-                        tree.expandRow(i);
-                    }
-                }
+    // 模块节点与当前模块列表保持一致 (按名称排序)，返回 模块 -> 节点
+    private Map<ModuleWrapper, DefaultMutableTreeNode> reconcileModules(DefaultMutableTreeNode root, List<ModuleWrapper> modules) {
+        Set<ModuleWrapper> wanted = new HashSet<>(modules);
+        for (int i = root.getChildCount() - 1; i >= 0; i--) {
+            DefaultMutableTreeNode node = (DefaultMutableTreeNode) root.getChildAt(i);
+            if (!wanted.contains(node.getUserObject())) {
+                fileNodes.values().removeIf(fileNode -> fileNode.isNodeAncestor(node));
+                dirIndex.keySet().removeIf(categoryNode -> categoryNode.isNodeAncestor(node));
+                treeModel.removeNodeFromParent(node);
             }
+        }
 
-            VirtualFile targetModule = project.getUserData(LAST_BAP_MODULE_ROOT);
-            if (targetModule != null) {
-                project.putUserData(LAST_BAP_MODULE_ROOT, null);
-                DefaultMutableTreeNode targetNode = findModuleNode(root, targetModule);
-                if (targetNode != null) {
-                    TreePath path = new TreePath(targetNode.getPath());
-                    tree.setSelectionPath(path);
-                    tree.scrollPathToVisible(path);
-                    tree.expandPath(path);
+        Map<ModuleWrapper, DefaultMutableTreeNode> result = new HashMap<>();
+        for (int i = 0; i < modules.size(); i++) {
+            ModuleWrapper module = modules.get(i);
+            DefaultMutableTreeNode node = i < root.getChildCount() ? (DefaultMutableTreeNode) root.getChildAt(i) : null;
+            if (node == null || !module.equals(node.getUserObject())) {
+                DefaultMutableTreeNode existing = findModuleNode(root, module.rootFile);
+                if (existing != null) {
+                    // 模块改名导致顺序变化：移动到新位置
+                    treeModel.removeNodeFromParent(existing);
+                    node = existing;
+                } else {
+                    node = new DefaultMutableTreeNode(module);
                 }
+                treeModel.insertNodeInto(node, root, i);
             }
-        });
+            if (!module.name.equals(((ModuleWrapper) node.getUserObject()).name)) {
+                node.setUserObject(module);
+                treeModel.nodeChanged(node);
+            }
+            result.put(module, node);
+        }
+        return result;
+    }
+
+    private boolean hasExpandedModule(DefaultMutableTreeNode root) {
+        for (int i = 0; i < root.getChildCount(); i++) {
+            DefaultMutableTreeNode node = (DefaultMutableTreeNode) root.getChildAt(i);
+            if (tree.isExpanded(new TreePath(node.getPath()))) return true;
+        }
+        return false;
     }
 
     // 递归向上查找存在的物理目录
@@ -363,7 +559,18 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
     private static class CategoryWrapper {
         String title;
         BapFileStatus status;
-        CategoryWrapper(String title, BapFileStatus status) { this.title = title; this.status = status; }
+        // 分组下的文件数，增删节点时同步维护
+        int count;
+        CategoryWrapper(BapFileStatus status) { this.status = status; updateTitle(); }
+        void updateTitle() {
+            String label;
+            switch (status) {
+                case MODIFIED: label = BapBundle.message("status.modified"); break;
+                case ADDED: label = BapBundle.message("status.added"); break;
+                default: label = BapBundle.message("status.deleted"); break;
+            }
+            title = BapBundle.message("ui.BapChangesTreePanel.category.format", label, count);
+        }
         @Override public String toString() { return status.name(); }
         @Override
         public boolean equals(Object o) {
@@ -379,6 +586,8 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
         VirtualFile file;
         String absolutePath; // 🔴 新增：用于存储真实物理路径
         BapFileStatus status;
+        // 相对路径 (已去除 src)，同一目录下的排序依据，见 sortKey
+        String sortKey;
 
         VirtualFileWrapper(VirtualFile file, String absolutePath, BapFileStatus status) {
             this.file = file;
@@ -488,15 +697,10 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
             }
             if (modulesToRefresh.isEmpty()) { rebuildTree(); return; }
 
-            ProgressManager.getInstance().run(new Task.Backgroundable(project, BapBundle.message("ui.BapChangesTreePanel.progress.title"), true) {
-                @Override public void run(@NotNull ProgressIndicator indicator) {
-                    ProjectRefresher refresher = new ProjectRefresher(project);
-                    for (VirtualFile root : modulesToRefresh) {
-                        indicator.setText(BapBundle.message("progress.refreshing_target", root.getName())); // "Refreshing " + root.getName() + "..."
-                        refresher.refreshModule(root, false);
-                    }
-                }
-            });
+            BapRefreshScheduler scheduler = BapRefreshScheduler.getInstance(project);
+            for (VirtualFile root : modulesToRefresh) {
+                scheduler.scheduleRefresh(root, false);
+            }
         }
     }
 
@@ -588,18 +792,8 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
             if (path != null) TreeUtil.selectPath(tree, path);
         }
         private TreePath findNodeForFile(DefaultMutableTreeNode root, VirtualFile target) {
-            for (int i = 0; i < root.getChildCount(); i++) {
-                DefaultMutableTreeNode moduleNode = (DefaultMutableTreeNode) root.getChildAt(i);
-                for (int j = 0; j < moduleNode.getChildCount(); j++) {
-                    DefaultMutableTreeNode catNode = (DefaultMutableTreeNode) moduleNode.getChildAt(j);
-                    for (int k = 0; k < catNode.getChildCount(); k++) {
-                        DefaultMutableTreeNode fileNode = (DefaultMutableTreeNode) catNode.getChildAt(k);
-                        Object userObj = fileNode.getUserObject();
-                        if (userObj instanceof VirtualFileWrapper && ((VirtualFileWrapper) userObj).file.equals(target)) return new TreePath(fileNode.getPath());
-                    }
-                }
-            }
-            return null;
+            DefaultMutableTreeNode fileNode = fileNodes.get(target.getPath());
+            return fileNode != null && fileNode.isNodeAncestor(root) ? new TreePath(fileNode.getPath()) : null;
         }
         private TreePath findNodeForModule(DefaultMutableTreeNode root, VirtualFile target) {
             for (int i = 0; i < root.getChildCount(); i++) {
@@ -682,63 +876,85 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
         }
     }
 
-    // --- 3. 对应修改 addStatusCategory (参数类型变了) ---
-    private void addStatusCategory(DefaultMutableTreeNode parent, Map<BapFileStatus, List<VirtualFileWrapper>> map, BapFileStatus status, String title, VirtualFile moduleRoot) {
-        List<VirtualFileWrapper> wrappers = map.get(status);
-        if (wrappers != null && !wrappers.isEmpty()) {
-            // 按路径排序
-            wrappers.sort(Comparator.comparing(w -> w.absolutePath));
-
-            String nodeTitle = BapBundle.message("ui.BapChangesTreePanel.category.format", title, wrappers.size());
-            DefaultMutableTreeNode categoryNode = new DefaultMutableTreeNode(new CategoryWrapper(nodeTitle, status));
-            parent.add(categoryNode);
-
-            // 获取配置状态
-            boolean isFlat = BapSettingsState.getInstance().flattenPackages;
+    // 分组节点固定按 修改 / 新增 / 删除 的顺序排列
+    private DefaultMutableTreeNode findOrCreateCategory(DefaultMutableTreeNode moduleNode, BapFileStatus status) {
+        int index = 0;
+        for (int i = 0; i < moduleNode.getChildCount(); i++) {
+            DefaultMutableTreeNode child = (DefaultMutableTreeNode) moduleNode.getChildAt(i);
+            CategoryWrapper category = (CategoryWrapper) child.getUserObject();
+            if (category.status == status) return child;
+            if (categoryOrder(category.status) < categoryOrder(status)) index = i + 1;
+        }
+        DefaultMutableTreeNode categoryNode = new DefaultMutableTreeNode(new CategoryWrapper(status));
+        treeModel.insertNodeInto(categoryNode, moduleNode, index);
+        return categoryNode;
+    }
 
-            for (VirtualFileWrapper wrapper : wrappers) {
-                // 1. 计算相对目录路径 (已去除 src)
-                String relativeDir = getRelativeDirectory(moduleRoot, wrapper.absolutePath);
+    private static int categoryOrder(BapFileStatus status) {
+        switch (status) {
+            case MODIFIED: return 0;
+            case ADDED: return 1;
+            default: return 2;
+        }
+    }
 
-                DefaultMutableTreeNode parentNode = categoryNode;
+    /**
+     * 通过目录索引查找或创建目录节点
+     * 树状模式下逐级创建 (com -> bap -> dev)，已存在的上级目录直接从索引中取得；
+     * 扁平模式下整个路径显示为一个点分隔的包名节点 (例如 com.bap.dev)
+     * @param dirPath 相对目录路径 (已去除 src)，为空表示直接放在分组下
+     */
+    private DefaultMutableTreeNode findOrCreateDir(DefaultMutableTreeNode categoryNode, String dirPath, boolean isFlat) {
+        if (dirPath.isEmpty()) return categoryNode;
+        Map<String, DefaultMutableTreeNode> index = dirIndex.computeIfAbsent(categoryNode, k -> new HashMap<>());
+        DefaultMutableTreeNode node = index.get(dirPath);
+        if (node != null) return node;
 
-                if (!relativeDir.isEmpty()) {
-                    if (isFlat) {
-                        // 🟢 扁平模式：将路径转换为点分隔包名 (例如 com.bap.dev)，直接创建一级节点
-                        String packageName = relativeDir.replace('/', '.');
-                        parentNode = findOrCreateChildDir(parentNode, packageName);
-                    } else {
-                        // 🔵 树状模式：递归创建嵌套节点 (com -> bap -> dev)
-                        String[] dirs = relativeDir.split("/");
-                        for (String dirName : dirs) {
-                            if (dirName.isEmpty()) continue;
-                            parentNode = findOrCreateChildDir(parentNode, dirName);
-                        }
-                    }
-                }
+        DefaultMutableTreeNode parent;
+        String name;
+        if (isFlat) {
+            parent = categoryNode;
+            name = dirPath.replace('/', '.');
+        } else {
+            int slash = dirPath.lastIndexOf('/');
+            parent = slash < 0 ? categoryNode : findOrCreateDir(categoryNode, dirPath.substring(0, slash), false);
+            name = pathInterner.intern(dirPath.substring(slash + 1));
+        }
+        node = new DefaultMutableTreeNode(new DirectoryWrapper(name, dirPath));
+        insertSorted(parent, node);
+        index.put(dirPath, node);
+        return node;
+    }
 
-                // 3. 添加文件节点
-                parentNode.add(new DefaultMutableTreeNode(wrapper));
-            }
+    private static DefaultMutableTreeNode findCategoryNode(DefaultMutableTreeNode node) {
+        while (node != null && !(node.getUserObject() instanceof CategoryWrapper)) {
+            node = (DefaultMutableTreeNode) node.getParent();
         }
+        return node;
     }
 
-    // 🔴 新增：查找或创建文件夹节点
-    private DefaultMutableTreeNode findOrCreateChildDir(DefaultMutableTreeNode parent, String dirName) {
-        int count = parent.getChildCount();
-        // 简单线性查找 (子节点数量通常不多)
-        for (int i = 0; i < count; i++) {
-            DefaultMutableTreeNode child = (DefaultMutableTreeNode) parent.getChildAt(i);
-            Object userObj = child.getUserObject();
-            if (userObj instanceof DirectoryWrapper && ((DirectoryWrapper) userObj).name.equals(dirName)) {
-                return child;
+    // 按排序键插入到兄弟节点中的有序位置 (全量重建和增量更新都经过这里，顺序一致)
+    private void insertSorted(DefaultMutableTreeNode parent, DefaultMutableTreeNode child) {
+        String key = sortKey(child);
+        int low = 0, high = parent.getChildCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortKey((DefaultMutableTreeNode) parent.getChildAt(mid)).compareTo(key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
-        // 未找到，创建新节点
-        DirectoryWrapper dirWrapper = new DirectoryWrapper(dirName);
-        DefaultMutableTreeNode newNode = new DefaultMutableTreeNode(dirWrapper);
-        parent.add(newNode);
-        return newNode;
+        treeModel.insertNodeInto(child, parent, low);
+    }
+
+    // 兄弟节点的排序键：目录为 "相对目录路径/"，文件为相对路径 (目录路径/文件名)。
+    // 与原来按绝对路径排序后依次追加节点的顺序一致 (例如 foo.java 排在目录 foo 之前)
+    private static String sortKey(DefaultMutableTreeNode node) {
+        Object userObj = node.getUserObject();
+        if (userObj instanceof DirectoryWrapper) return ((DirectoryWrapper) userObj).path + "/";
+        if (userObj instanceof VirtualFileWrapper) return ((VirtualFileWrapper) userObj).sortKey;
+        return String.valueOf(userObj);
     }
 
     // 🔴 新增：计算相对目录路径 (去除 src 前缀)
@@ -767,10 +983,53 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
         return ""; // 文件就在根目录下 (或者 src 下)
     }
 
+    /**
+     * 后台计算出的一次树更新
+     * base/baseModules 是计算所依据的已应用状态，应用时用来判断是否已经过时
+     */
+    private static class TreeUpdate {
+        final Map<String, BapFileStatus> base;
+        final List<ModuleWrapper> baseModules;
+        final Map<String, BapFileStatus> next;
+        final List<ModuleWrapper> modules;
+        final List<String> removed;
+        final List<FileAddition> added;
+        // 本次计算依据的变化路径快照，以及暂时无法建立节点的路径
+        final Map<String, Long> dirty;
+        final List<String> skipped;
+
+        TreeUpdate(Map<String, BapFileStatus> base, List<ModuleWrapper> baseModules, Map<String, BapFileStatus> next,
+                   List<ModuleWrapper> modules, List<String> removed, List<FileAddition> added,
+                   Map<String, Long> dirty, List<String> skipped) {
+            this.base = base;
+            this.baseModules = baseModules;
+            this.next = next;
+            this.modules = modules;
+            this.removed = removed;
+            this.added = added;
+            this.dirty = dirty;
+            this.skipped = skipped;
+        }
+    }
+
+    private static class FileAddition {
+        final ModuleWrapper module;
+        final VirtualFileWrapper wrapper;
+        // 相对目录路径 (已去除 src)
+        final String dirPath;
+        FileAddition(ModuleWrapper module, VirtualFileWrapper wrapper, String dirPath) {
+            this.module = module;
+            this.wrapper = wrapper;
+            this.dirPath = dirPath;
+        }
+    }
+
     // --- 🔴 新增：DirectoryWrapper 类 ---
     private static class DirectoryWrapper {
         String name;
-        DirectoryWrapper(String name) { this.name = name; }
+        // 相对目录路径 (目录索引中的 Key)
+        String path;
+        DirectoryWrapper(String name, String path) { this.name = name; this.path = path; }
         @Override public String toString() { return name; }
         @Override
         public boolean equals(Object o) {
@@ -859,12 +1118,7 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
                     renderer.setIcon(AllIcons.Nodes.Module);
                 } else if (userObject instanceof CategoryWrapper) {
                     CategoryWrapper wrapper = (CategoryWrapper) userObject;
-                    SimpleTextAttributes attr = SimpleTextAttributes.REGULAR_ATTRIBUTES;
-                    BapSettingsState settings = BapSettingsState.getInstance();
-                    if (wrapper.status == BapFileStatus.MODIFIED) attr = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, settings.getModifiedColorObj());
-                    else if (wrapper.status == BapFileStatus.ADDED) attr = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, settings.getAddedColorObj());
-                    else if (wrapper.status == BapFileStatus.DELETED_LOCALLY) attr = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, settings.getDeletedColorObj());
-                    renderer.append(wrapper.title, attr);
+                    renderer.append(wrapper.title, BapStatusStyles.getInstance().getAttributes(wrapper.status));
                     renderer.setIcon(AllIcons.Nodes.Folder);
                 } else if (userObject instanceof DirectoryWrapper) {
                     // 🔴 新增：DirectoryWrapper 渲染
@@ -872,19 +1126,10 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
                     renderer.setIcon(AllIcons.Nodes.Package); // 使用包图标
                 } else if (userObject instanceof VirtualFileWrapper) {
                     VirtualFileWrapper wrapper = (VirtualFileWrapper) userObject;
-                    SimpleTextAttributes attr = SimpleTextAttributes.REGULAR_ATTRIBUTES;
-                    String suffix = "";
-                    BapSettingsState settings = BapSettingsState.getInstance();
-                    java.awt.Color modColor = settings.getModifiedColorObj();
-                    java.awt.Color addColor = settings.getAddedColorObj();
-                    java.awt.Color delColor = settings.getDeletedColorObj();
-                    switch (wrapper.status) {
-                        case MODIFIED: attr = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, modColor); suffix = " "+BapBundle.message("status.symbol.modified"); break; // " [M]"
-                        case ADDED: attr = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, addColor); suffix = " "+BapBundle.message("status.symbol.added"); break;       // " [A]"
-                        case DELETED_LOCALLY: attr = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, delColor); suffix = " "+BapBundle.message("status.symbol.deleted"); break; // " [D]"
-                    }
-                    renderer.append(wrapper.file.getName(), attr);
-                    renderer.append(suffix, SimpleTextAttributes.GRAYED_ATTRIBUTES);
+                    // 样式在颜色设置变化时才重新创建，绘制时不再分配
+                    BapStatusStyles styles = BapStatusStyles.getInstance();
+                    renderer.append(wrapper.file.getName(), styles.getAttributes(wrapper.status));
+                    renderer.append(styles.getMark(wrapper.status), SimpleTextAttributes.GRAYED_ATTRIBUTES); // " [M]"
                     if (wrapper.file.isDirectory()) renderer.setIcon(AllIcons.Nodes.Folder);
                     else if ("java".equalsIgnoreCase(wrapper.file.getExtension())) renderer.setIcon(AllIcons.FileTypes.Java);
                     else renderer.setIcon(AllIcons.FileTypes.Text);
@@ -954,7 +1199,8 @@ public class BapChangesTreePanel extends SimpleToolWindowPanel implements Dispos
         @Override
         public void setSelected(@NotNull AnActionEvent e, boolean state) {
             BapSettingsState.getInstance().flattenPackages = state;
-            rebuildTree(); // 切换后立即重绘树
+            // 切换后树的目录结构整体变化，重新构建
+            ApplicationManager.getApplication().invokeLater(BapChangesTreePanel.this::resetTree);
         }
 
         @Override
@@ -0,0 +1,103 @@
+package com.bap.dev.ui;
+
+import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapFileStatus;
+import com.bap.dev.service.BapFileStatusService;
+import com.bap.dev.settings.BapSettingsState;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.colors.ColorKey;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.FileStatus;
+import com.intellij.openapi.vcs.impl.FileStatusProvider;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.ThreeState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.Color;
+
+/**
+ * 把 Bap 文件状态接入平台的文件状态 (FileStatusManager)
+ * 平台会缓存每个文件的状态，项目视图、编辑器页签等按状态着色；
+ * 状态变化时由 BapStatusUiUpdater 逐个通知 fileStatusChanged，只重绘变化的文件。
+ * 没有 Bap 状态的文件返回 null，交给 Git 等版本控制继续着色。
+ */
+public class BapFileStatusProvider implements FileStatusProvider {
+
+    static final FileStatus MODIFIED = new BapStatus("BAP_MODIFIED", BapFileStatus.MODIFIED, "status.file_status.modified");
+    static final FileStatus ADDED = new BapStatus("BAP_ADDED", BapFileStatus.ADDED, "status.file_status.added");
+    static final FileStatus DELETED = new BapStatus("BAP_DELETED", BapFileStatus.DELETED_LOCALLY, "status.file_status.deleted");
+
+    private final Project project;
+
+    public BapFileStatusProvider(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public @Nullable FileStatus getFileStatus(@NotNull VirtualFile virtualFile) {
+        // 开关关闭时不提供状态，保持原有 (Git) 着色
+        if (!BapSettingsState.getInstance().showProjectTreeStatus || project.isDisposed()) return null;
+
+        BapFileStatusService statusService = BapFileStatusService.getInstance(project);
+        if (!statusService.hasChangesUnder(virtualFile)) return null;
+        switch (statusService.getStatus(virtualFile)) {
+            case MODIFIED: return MODIFIED;
+            case ADDED: return ADDED;
+            case DELETED_LOCALLY: return DELETED;
+            default: return null;
+        }
+    }
+
+    @Override
+    public void refreshFileStatusFromDocument(@NotNull VirtualFile virtualFile, @NotNull Document doc) {
+        // Bap 状态由刷新计算，编辑文档时不在这里重新判断
+    }
+
+    @Override
+    public @NotNull ThreeState getNotChangedDirectoryParentingStatus(@NotNull VirtualFile virtualFile) {
+        return ThreeState.NO;
+    }
+
+    /**
+     * 颜色取自设置 (BapStatusStyles)，修改设置后无需重新创建状态对象
+     */
+    private static final class BapStatus implements FileStatus {
+        private final String id;
+        private final BapFileStatus status;
+        private final String textKey;
+        private final ColorKey colorKey;
+
+        BapStatus(String id, BapFileStatus status, String textKey) {
+            this.id = id;
+            this.status = status;
+            this.textKey = textKey;
+            this.colorKey = ColorKey.createColorKey("FILESTATUS_" + id);
+        }
+
+        @Override
+        public String getText() {
+            return BapBundle.message(textKey);
+        }
+
+        @Override
+        public Color getColor() {
+            return BapStatusStyles.getInstance().getColor(status);
+        }
+
+        @Override
+        public @NotNull ColorKey getColorKey() {
+            return colorKey;
+        }
+
+        @Override
+        public @NotNull String getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.bap.dev.ui;
+
+import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapRpcMetrics;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.*;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * "Bap Metrics" 页签：展示 BapRpcMetrics 中的 RPC 调用统计，可导出为 JSON
+ * 页签可见时每隔几秒自动刷新一次
+ */
+public class BapMetricsPanel extends SimpleToolWindowPanel implements Disposable {
+
+    private static final int AUTO_REFRESH_MS = 2000;
+
+    private final Project project;
+    private final MetricsTableModel tableModel = new MetricsTableModel();
+    private final Timer refreshTimer;
+
+    public BapMetricsPanel(Project project) {
+        super(true, true);
+        this.project = project;
+
+        JBTable table = new JBTable(tableModel);
+        table.setAutoCreateRowSorter(true);
+        table.setShowGrid(false);
+        table.getColumnModel().getColumn(0).setPreferredWidth(180);
+        table.getColumnModel().getColumn(1).setPreferredWidth(140);
+
+        DefaultActionGroup group = new DefaultActionGroup();
+        group.add(new RefreshAction());
+        group.add(new ResetAction());
+        group.add(new ExportAction());
+
+        ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar("BapMetricsToolbar", group, true);
+        toolbar.setTargetComponent(this);
+        setToolbar(toolbar.getComponent());
+        setContent(new JBScrollPane(table));
+
+        refreshTimer = new Timer(AUTO_REFRESH_MS, e -> {
+            if (isShowing()) reload();
+        });
+        refreshTimer.start();
+        reload();
+    }
+
+    private void reload() {
+        tableModel.setRows(BapRpcMetrics.getInstance().snapshot());
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+    }
+
+    private void exportJson() {
+        FileSaverDescriptor descriptor = new FileSaverDescriptor(
+                BapBundle.message("ui.BapMetricsPanel.export.title"),       // "Export Bap Metrics"
+                BapBundle.message("ui.BapMetricsPanel.export.description"), // "Save RPC metrics as JSON"
+                "json");
+        VirtualFileWrapper target = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, project)
+                .save(null, "bap-metrics.json");
+        if (target == null) return;
+
+        try {
+            Files.write(target.getFile().toPath(), BapRpcMetrics.getInstance().toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (Exception ex) {
+            Messages.showErrorDialog(project, BapBundle.message("ui.BapMetricsPanel.export.failed", ex.getMessage()), BapBundle.message("title.error"));
+        }
+    }
+
+    private class RefreshAction extends AnAction {
+        public RefreshAction() { super(BapBundle.message("action.refresh"), BapBundle.message("ui.BapMetricsPanel.action.refresh.desc"), AllIcons.Actions.Refresh); }
+        @Override public void actionPerformed(@NotNull AnActionEvent e) { reload(); }
+    }
+
+    private class ResetAction extends AnAction {
+        public ResetAction() { super(BapBundle.message("ui.BapMetricsPanel.action.reset.text"), BapBundle.message("ui.BapMetricsPanel.action.reset.desc"), AllIcons.Actions.GC); }
+        @Override public void actionPerformed(@NotNull AnActionEvent e) {
+            BapRpcMetrics.getInstance().reset();
+            reload();
+        }
+    }
+
+    private class ExportAction extends AnAction {
+        public ExportAction() { super(BapBundle.message("ui.BapMetricsPanel.action.export.text"), BapBundle.message("ui.BapMetricsPanel.action.export.desc"), AllIcons.ToolbarDecorator.Export); }
+        @Override public void actionPerformed(@NotNull AnActionEvent e) { exportJson(); }
+    }
+
+    private static class MetricsTableModel extends AbstractTableModel {
+        private final String[] columns = {
+                BapBundle.message("ui.BapMetricsPanel.column.server"),   // "Server"
+                BapBundle.message("ui.BapMetricsPanel.column.method"),   // "Method"
+                BapBundle.message("ui.BapMetricsPanel.column.calls"),    // "Calls"
+                BapBundle.message("ui.BapMetricsPanel.column.errors"),   // "Errors"
+                BapBundle.message("ui.BapMetricsPanel.column.p50"),      // "p50 (ms)"
+                BapBundle.message("ui.BapMetricsPanel.column.p95"),      // "p95 (ms)"
+                BapBundle.message("ui.BapMetricsPanel.column.p99"),      // "p99 (ms)"
+                BapBundle.message("ui.BapMetricsPanel.column.max"),      // "Max (ms)"
+                BapBundle.message("ui.BapMetricsPanel.column.sent"),     // "Sent (KB)"
+                BapBundle.message("ui.BapMetricsPanel.column.received")  // "Received (KB)"
+        };
+        private List<BapRpcMetrics.Snapshot> rows = new ArrayList<>();
+
+        void setRows(List<BapRpcMetrics.Snapshot> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override public int getRowCount() { return rows.size(); }
+        @Override public int getColumnCount() { return columns.length; }
+        @Override public String getColumnName(int column) { return columns[column]; }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            if (column <= 1) return String.class;
+            if (column <= 3) return Long.class;
+            return Double.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            BapRpcMetrics.Snapshot s = rows.get(row);
+            switch (column) {
+                case 0: return s.server;
+                case 1: return s.method;
+                case 2: return s.calls;
+                case 3: return s.errors;
+                case 4: return s.p50Ms;
+                case 5: return s.p95Ms;
+                case 6: return s.p99Ms;
+                case 7: return s.maxMs;
+                case 8: return Math.round(s.requestBytes / 102.4) / 10.0;
+                case 9: return Math.round(s.responseBytes / 102.4) / 10.0;
+                default: return null;
+            }
+        }
+    }
+}
@@ -8,10 +8,11 @@ import com.intellij.ide.projectView.ProjectViewNode;
 import com.intellij.ide.projectView.ProjectViewNodeDecorator;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.ui.SimpleTextAttributes;
-
-import java.awt.Color;
 
+/**
+ * 项目视图中在文件名后显示 Bap 状态字母 (M/A/D)
+ * 文件名的颜色由 BapFileStatusProvider 通过平台的文件状态提供，这里不再改写节点文字，避免覆盖 Git 等其他着色。
+ */
 public class BapProjectDecorator implements ProjectViewNodeDecorator {
 
     @Override
@@ -26,39 +27,12 @@ public class BapProjectDecorator implements ProjectViewNodeDecorator {
         if (project == null || file == null) return;
 
         BapFileStatusService statusService = BapFileStatusService.getInstance(project);
-        BapFileStatus status = statusService.getStatus(file);
+        // 🔴 所在模块没有任何变化时直接返回，绝大多数节点走这里，不分配任何对象
+        if (!statusService.hasChangesUnder(file)) return;
 
+        BapFileStatus status = statusService.getStatus(file);
         if (status == BapFileStatus.NORMAL) return;
 
-        data.clearText();
-        SimpleTextAttributes attr;
-        String suffix;
-
-        // --- 🔴 从配置中获取颜色 ---
-        BapSettingsState settings = BapSettingsState.getInstance();
-        Color modColor = settings.getModifiedColorObj();
-        Color addColor = settings.getAddedColorObj();
-        Color delColor = settings.getDeletedColorObj();
-
-        switch (status) {
-            case MODIFIED:
-                attr = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, modColor);
-                suffix = "M";
-                break;
-            case ADDED:
-                attr = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, addColor);
-                suffix = "A";
-                break;
-            case DELETED_LOCALLY:
-                attr = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, delColor);
-                suffix = "D";
-                break;
-            default:
-                attr = SimpleTextAttributes.REGULAR_ATTRIBUTES;
-                suffix = "";
-        }
-
-        data.addText(file.getName(), attr);
-        data.setLocationString(suffix);
+        data.setLocationString(BapStatusStyles.getLetter(status));
     }
 }
\ No newline at end of file
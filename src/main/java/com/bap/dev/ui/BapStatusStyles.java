@@ -0,0 +1,109 @@
+package com.bap.dev.ui;
+
+import com.bap.dev.i18n.BapBundle;
+import com.bap.dev.service.BapFileStatus;
+import com.bap.dev.settings.BapSettingsState;
+import com.intellij.ui.SimpleTextAttributes;
+
+import java.awt.Color;
+
+/**
+ * 各文件状态的显示样式 (颜色、文字属性、状态标记)
+ * 项目视图和 Bap Changes 树每次绘制都会用到，这里只在设置中的颜色变化时重新创建一次，
+ * 绘制时直接复用同一组不可变对象。
+ */
+public final class BapStatusStyles {
+
+    private static volatile BapStatusStyles current;
+
+    private final int modifiedRgb;
+    private final int addedRgb;
+    private final int deletedRgb;
+
+    private final Color modifiedColor;
+    private final Color addedColor;
+    private final Color deletedColor;
+
+    private final SimpleTextAttributes modified;
+    private final SimpleTextAttributes added;
+    private final SimpleTextAttributes deleted;
+
+    // Bap Changes 树中文件名后的状态标记，例如 " [M]"
+    private final String modifiedMark;
+    private final String addedMark;
+    private final String deletedMark;
+
+    private BapStatusStyles(int modifiedRgb, int addedRgb, int deletedRgb) {
+        this.modifiedRgb = modifiedRgb;
+        this.addedRgb = addedRgb;
+        this.deletedRgb = deletedRgb;
+        this.modifiedColor = new Color(modifiedRgb);
+        this.addedColor = new Color(addedRgb);
+        this.deletedColor = new Color(deletedRgb);
+        this.modified = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, modifiedColor);
+        this.added = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, addedColor);
+        this.deleted = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, deletedColor);
+        this.modifiedMark = " " + BapBundle.message("status.symbol.modified");
+        this.addedMark = " " + BapBundle.message("status.symbol.added");
+        this.deletedMark = " " + BapBundle.message("status.symbol.deleted");
+    }
+
+    /**
+     * 当前设置对应的样式，只比较颜色值，颜色未变时不创建任何对象
+     * (设置页 Apply 和 loadState 都直接修改 BapSettingsState 的颜色字段，因此按值比较而不是依赖回调)
+     */
+    public static BapStatusStyles getInstance() {
+        BapSettingsState settings = BapSettingsState.getInstance();
+        BapStatusStyles styles = current;
+        if (styles == null
+                || styles.modifiedRgb != settings.modifiedColor
+                || styles.addedRgb != settings.addedColor
+                || styles.deletedRgb != settings.deletedColor) {
+            styles = new BapStatusStyles(settings.modifiedColor, settings.addedColor, settings.deletedColor);
+            current = styles;
+        }
+        return styles;
+    }
+
+    public Color getColor(BapFileStatus status) {
+        switch (status) {
+            case MODIFIED: return modifiedColor;
+            case ADDED: return addedColor;
+            case DELETED_LOCALLY: return deletedColor;
+            default: return null;
+        }
+    }
+
+    public SimpleTextAttributes getAttributes(BapFileStatus status) {
+        switch (status) {
+            case MODIFIED: return modified;
+            case ADDED: return added;
+            case DELETED_LOCALLY: return deleted;
+            default: return SimpleTextAttributes.REGULAR_ATTRIBUTES;
+        }
+    }
+
+    /**
+     * Bap Changes 树中文件名后的状态标记 (带前导空格)
+     */
+    public String getMark(BapFileStatus status) {
+        switch (status) {
+            case MODIFIED: return modifiedMark;
+            case ADDED: return addedMark;
+            case DELETED_LOCALLY: return deletedMark;
+            default: return "";
+        }
+    }
+
+    /**
+     * 项目视图中的状态字母
+     */
+    public static String getLetter(BapFileStatus status) {
+        switch (status) {
+            case MODIFIED: return "M";
+            case ADDED: return "A";
+            case DELETED_LOCALLY: return "D";
+            default: return "";
+        }
+    }
+}
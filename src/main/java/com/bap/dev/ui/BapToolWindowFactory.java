@@ -1,5 +1,6 @@
 package com.bap.dev.ui;
 
+import com.bap.dev.i18n.BapBundle;
 import com.intellij.openapi.project.DumbAware;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer; // 引入
@@ -15,11 +16,17 @@ public class BapToolWindowFactory implements ToolWindowFactory, DumbAware {
     public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
         BapChangesTreePanel panel = new BapChangesTreePanel(project);
         ContentFactory contentFactory = ContentFactory.getInstance();
-        Content content = contentFactory.createContent(panel, "", false);
+        Content content = contentFactory.createContent(panel, BapBundle.message("toolwindow.tab.changes"), false); // "Changes"
         toolWindow.getContentManager().addContent(content);
 
         // --- 🔴 修复点：将 Panel 的销毁绑定到 Content 上 ---
         // 当 Content 被关闭/移除时，panel.dispose() 会被调用，从而断开消息总线连接
         content.setDisposer(panel);
+
+        // RPC 调用统计页签
+        BapMetricsPanel metricsPanel = new BapMetricsPanel(project);
+        Content metricsContent = contentFactory.createContent(metricsPanel, BapBundle.message("toolwindow.tab.metrics"), false); // "Bap Metrics"
+        toolWindow.getContentManager().addContent(metricsContent);
+        metricsContent.setDisposer(metricsPanel);
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.bap.dev.ui;
 
 import bap.java.CJavaCode;
 import bap.md.ver.VersionNode;
+import com.bap.dev.BapAsyncClient;
 import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
 import com.bap.dev.service.BapConnectionManager;
@@ -22,6 +23,7 @@ import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
@@ -53,6 +55,7 @@ import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class HistoryListDialog extends DialogWrapper {
 
@@ -271,7 +274,6 @@ public class HistoryListDialog extends DialogWrapper {
             public void run(@NotNull ProgressIndicator indicator) {
                 BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
                 try {
-                    client.connect(uri, user, pwd);
                     CResFileDto resFile = client.getService().getHistoryFile(node.getUuid());
 
                     if (resFile != null && resFile.getFileBin() != null) {
@@ -301,8 +303,6 @@ public class HistoryListDialog extends DialogWrapper {
                             Messages.showErrorDialog(
                                     BapBundle.message("error.download_fail", e.getMessage()), // "Download failed: " + e.getMessage()
                                     BapBundle.message("title.error"))); // "Error" (Common)
-                } finally {
-                    client.shutdown();
                 }
             }
         });
@@ -314,7 +314,6 @@ public class HistoryListDialog extends DialogWrapper {
             public void run(@NotNull ProgressIndicator indicator) {
                 BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
                 try {
-                    client.connect(uri, user, pwd);
                     String content = "";
                     if (isResource()) {
                         CResFileDto res = client.getService().getHistoryFile(node.getUuid());
@@ -342,8 +341,6 @@ public class HistoryListDialog extends DialogWrapper {
                     });
                 } catch (Exception e) {
                     e.printStackTrace();
-                } finally {
-                    client.shutdown();
                 }
             }
         });
@@ -367,17 +364,25 @@ public class HistoryListDialog extends DialogWrapper {
             public void run(@NotNull ProgressIndicator indicator) {
                 BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
                 try {
-                    client.connect(uri, user, pwd);
                     String curContent = "", prevContent = "";
 
                     if (isResource()) {
-                        CResFileDto cur = client.getService().getHistoryFile(currentNode.getUuid());
-                        CResFileDto prev = client.getService().getHistoryFile(prevNode.getUuid());
+                        // 两个版本同时请求
+                        BapAsyncClient async = client.async();
+                        CompletableFuture<CResFileDto> curFuture = async.getHistoryFile(currentNode.getUuid());
+                        CompletableFuture<CResFileDto> prevFuture = async.getHistoryFile(prevNode.getUuid());
+                        BapAsyncClient.awaitAll(indicator, curFuture, prevFuture);
+                        CResFileDto cur = curFuture.join();
+                        CResFileDto prev = prevFuture.join();
                         if (cur != null) curContent = new String(cur.getFileBin());
                         if (prev != null) prevContent = new String(prev.getFileBin());
                     } else {
-                        CJavaCode cur = client.getService().getHistoryCode(currentNode.getUuid());
-                        CJavaCode prev = client.getService().getHistoryCode(prevNode.getUuid());
+                        BapAsyncClient async = client.async();
+                        CompletableFuture<CJavaCode> curFuture = async.getHistoryCode(currentNode.getUuid());
+                        CompletableFuture<CJavaCode> prevFuture = async.getHistoryCode(prevNode.getUuid());
+                        BapAsyncClient.awaitAll(indicator, curFuture, prevFuture);
+                        CJavaCode cur = curFuture.join();
+                        CJavaCode prev = prevFuture.join();
                         if (cur != null) curContent = cur.code;
                         if (prev != null) prevContent = prev.code;
                     }
@@ -392,10 +397,10 @@ public class HistoryListDialog extends DialogWrapper {
                                     BapBundle.message("diff.current", currentNode.versionNo), // "Current (v...)"
                                     localFile.getName())
                     );
+                } catch (ProcessCanceledException e) {
+                    throw e;
                 } catch (Exception e) {
                     e.printStackTrace();
-                } finally {
-                    client.shutdown();
                 }
             }
         });
@@ -407,7 +412,6 @@ public class HistoryListDialog extends DialogWrapper {
             public void run(@NotNull ProgressIndicator indicator) {
                 BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
                 try {
-                    client.connect(uri, user, pwd);
                     String remoteContent = "";
 
                     if (isResource()) {
@@ -425,8 +429,6 @@ public class HistoryListDialog extends DialogWrapper {
                     );
                 } catch (Exception e) {
                     e.printStackTrace();
-                } finally {
-                    client.shutdown();
                 }
             }
         });
@@ -438,7 +440,6 @@ public class HistoryListDialog extends DialogWrapper {
             public void run(@NotNull ProgressIndicator indicator) {
                 BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
                 try {
-                    client.connect(uri, user, pwd);
                     byte[] content = null;
 
                     if (isResource()) {
@@ -473,8 +474,6 @@ public class HistoryListDialog extends DialogWrapper {
                     });
                 } catch (Exception e) {
                     e.printStackTrace();
-                } finally {
-                    client.shutdown();
                 }
             }
         });
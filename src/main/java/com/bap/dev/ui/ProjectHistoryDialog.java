@@ -2,6 +2,7 @@ package com.bap.dev.ui;
 
 import bap.java.CJavaCode;
 import bap.md.ver.VersionNode;
+import com.bap.dev.BapAsyncClient;
 import com.bap.dev.BapRpcClient;
 import com.bap.dev.i18n.BapBundle;
 import com.bap.dev.service.BapConnectionManager;
@@ -21,6 +22,7 @@ import com.intellij.openapi.fileChooser.FileChooserDescriptor;
 import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
@@ -58,6 +60,7 @@ import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class ProjectHistoryDialog extends DialogWrapper {
 
@@ -385,13 +388,22 @@ public class ProjectHistoryDialog extends DialogWrapper {
                     String prevContent = "";
 
                     if (isResourceFile(currentFileNode.key)) {
-                        CResFileDto cur = client.getService().getHistoryFile(currentFileNode.getUuid());
-                        CResFileDto prev = client.getService().getHistoryFile(prevNode.getUuid());
+                        // 两个版本同时请求
+                        BapAsyncClient async = client.async();
+                        CompletableFuture<CResFileDto> curFuture = async.getHistoryFile(currentFileNode.getUuid());
+                        CompletableFuture<CResFileDto> prevFuture = async.getHistoryFile(prevNode.getUuid());
+                        BapAsyncClient.awaitAll(indicator, curFuture, prevFuture);
+                        CResFileDto cur = curFuture.join();
+                        CResFileDto prev = prevFuture.join();
                         if (cur != null) currentContent = new String(cur.getFileBin());
                         if (prev != null) prevContent = new String(prev.getFileBin());
                     } else {
-                        CJavaCode cur = client.getService().getHistoryCode(currentFileNode.getUuid());
-                        CJavaCode prev = client.getService().getHistoryCode(prevNode.getUuid());
+                        BapAsyncClient async = client.async();
+                        CompletableFuture<CJavaCode> curFuture = async.getHistoryCode(currentFileNode.getUuid());
+                        CompletableFuture<CJavaCode> prevFuture = async.getHistoryCode(prevNode.getUuid());
+                        BapAsyncClient.awaitAll(indicator, curFuture, prevFuture);
+                        CJavaCode cur = curFuture.join();
+                        CJavaCode prev = prevFuture.join();
                         if (cur != null) currentContent = cur.code;
                         if (prev != null) prevContent = prev.code;
                     }
@@ -407,6 +419,8 @@ public class ProjectHistoryDialog extends DialogWrapper {
                                     currentFileNode.key)
                     );
 
+                } catch (ProcessCanceledException e) {
+                    throw e;
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
@@ -475,7 +489,6 @@ public class ProjectHistoryDialog extends DialogWrapper {
             public void run(@NotNull ProgressIndicator indicator) {
                 BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
                 try {
-                    client.connect(uri, user, pwd);
                     CResFileDto resFile = client.getService().getHistoryFile(node.getUuid());
 
                     if (resFile != null && resFile.getFileBin() != null) {
@@ -499,8 +512,6 @@ public class ProjectHistoryDialog extends DialogWrapper {
                     ApplicationManager.getApplication().invokeLater(() ->
                             // [修改] 使用 Bundle (error.download_fail, title.error)
                             Messages.showErrorDialog(BapBundle.message("error.download_fail", e.getMessage()), BapBundle.message("title.error")));
-                } finally {
-                    client.shutdown();
                 }
             }
         });
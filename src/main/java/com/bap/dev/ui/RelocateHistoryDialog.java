@@ -237,13 +237,8 @@ public class RelocateHistoryDialog extends DialogWrapper {
                 public void run(@NotNull ProgressIndicator indicator) {
                     indicator.setIndeterminate(true);
                     try {
-                        // 使用共享连接
+                        // 使用共享连接 (连接池按 uri/user/pwd 区分，参数变化时会取到对应的连接)
                         BapRpcClient client = BapConnectionManager.getInstance(project).getSharedClient(uri, user, pwd);
-                        // 注意：如果连接参数变了，getSharedClient 可能会复用旧连接，建议这里强制 connect 或者单独 new 一个 client
-                        // 为了简单，这里假定用户修改不多，或者 ConnectionManager 能处理 key 变化
-                        // 更保险的做法是 client.connect(...) 确保连通性
-                        // 但 SharedClient 不暴露 connect。
-                        // 如果要强制刷新，可以使用 client.getService().getProjects() 会触发重连逻辑(如果没连上)
 
                         java.util.List<CJavaProjectDto> projects = client.getService().getAllProjects(); // 假设有此 API
 
@@ -0,0 +1,288 @@
+package com.bap.dev.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 统一的 MD5 计算工具 (刷新、提交、依赖库更新共用)
+ * Java 源码的 MD5 以流式方式计算，不生成中间字符串，结果与以下写法完全一致：
+ * <pre>
+ * 标准 MD5: md5(new String(bytes, UTF_8).replace("\r\n", "\n").getBytes(UTF_8))
+ * 宽松 MD5: md5(content.replaceAll("\\s+", "").getBytes(UTF_8))
+ * </pre>
+ * 缓冲区和 MessageDigest 按线程复用，每个文件的额外内存开销是常量。
+ */
+public class BapHashUtils {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static final ThreadLocal<byte[]> READ_BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    // 输出缓冲区：比输入多留 4 字节，容纳一个完整的 UTF-8 字符或被暂存的 \r
+    private static final ThreadLocal<byte[]> WRITE_BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE + 4]);
+
+    /**
+     * 源码的摘要结果
+     * blank=true 表示内容只有空白字符 (trim 后为空)，此时 md5 为 null
+     */
+    public static final class TextDigest {
+        public final boolean blank;
+        public final String md5;
+
+        TextDigest(boolean blank, String md5) {
+            this.blank = blank;
+            this.md5 = md5;
+        }
+    }
+
+    /**
+     * 原始字节的 MD5 (大写十六进制)
+     */
+    public static String md5(byte[] content) {
+        MessageDigest md = MD5.get();
+        md.reset();
+        return toHex(md.digest(content));
+    }
+
+    /**
+     * 流式计算原始字节的 MD5，不把整个文件读入内存
+     */
+    public static String md5(InputStream in) throws IOException {
+        MessageDigest md = MD5.get();
+        md.reset();
+        byte[] buf = READ_BUFFER.get();
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            md.update(buf, 0, n);
+        }
+        return toHex(md.digest());
+    }
+
+    public static String md5(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return md5(in);
+        }
+    }
+
+    /**
+     * 流式计算标准 MD5 (\r\n 归一化为 \n)
+     * @return 内容不是合法 UTF-8 时返回 null，调用方需要按字符串方式重新计算 (与 new String 的替换字符行为保持一致)
+     */
+    public static TextDigest standardMd5(InputStream in) throws IOException {
+        MessageDigest md = MD5.get();
+        md.reset();
+        byte[] buf = READ_BUFFER.get();
+        byte[] out = WRITE_BUFFER.get();
+        Utf8Validator validator = new Utf8Validator();
+
+        boolean blank = true;
+        boolean pendingCr = false;
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            int o = 0;
+            for (int i = 0; i < n; i++) {
+                byte b = buf[i];
+                if (!validator.accept(b)) return null;
+                // trim() 去掉的是所有 <= 0x20 的字符；合法 UTF-8 中多字节字符的每个字节都 >= 0x80
+                if ((b & 0xFF) > 0x20) blank = false;
+
+                if (pendingCr) {
+                    pendingCr = false;
+                    if (b != '\n') out[o++] = '\r';
+                }
+                if (b == '\r') {
+                    pendingCr = true;
+                } else {
+                    out[o++] = b;
+                }
+            }
+            md.update(out, 0, o);
+        }
+        if (pendingCr) md.update((byte) '\r');
+        if (!validator.isComplete()) return null;
+
+        return blank ? new TextDigest(true, null) : new TextDigest(false, toHex(md.digest()));
+    }
+
+    /**
+     * 流式计算宽松 MD5 (跳过空格、\t、\n、\x0B、\f、\r，与正则 \s 相同)
+     * @return 内容不是合法 UTF-8 时返回 null
+     */
+    public static String looseMd5(InputStream in) throws IOException {
+        MessageDigest md = MD5.get();
+        md.reset();
+        byte[] buf = READ_BUFFER.get();
+        byte[] out = WRITE_BUFFER.get();
+        Utf8Validator validator = new Utf8Validator();
+
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            int o = 0;
+            for (int i = 0; i < n; i++) {
+                byte b = buf[i];
+                if (!validator.accept(b)) return null;
+                if (!isAsciiWhitespace(b)) out[o++] = b;
+            }
+            md.update(out, 0, o);
+        }
+        if (!validator.isComplete()) return null;
+        return toHex(md.digest());
+    }
+
+    /**
+     * 标准 MD5 (\r\n 归一化为 \n)，边编码 UTF-8 边计算
+     */
+    public static String standardMd5(CharSequence text) {
+        return digestChars(text, false);
+    }
+
+    /**
+     * 宽松 MD5 (去除所有 \s 空白字符)，边编码 UTF-8 边计算
+     */
+    public static String looseMd5(CharSequence text) {
+        return digestChars(text, true);
+    }
+
+    private static String digestChars(CharSequence text, boolean loose) {
+        MessageDigest md = MD5.get();
+        md.reset();
+        byte[] out = WRITE_BUFFER.get();
+        int limit = out.length - 4;
+        int o = 0;
+
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (loose) {
+                if (c < 0x80 && isAsciiWhitespace((byte) c)) continue;
+            } else if (c == '\r' && i + 1 < len && text.charAt(i + 1) == '\n') {
+                continue;
+            }
+
+            if (c < 0x80) {
+                out[o++] = (byte) c;
+            } else if (c < 0x800) {
+                out[o++] = (byte) (0xC0 | (c >> 6));
+                out[o++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 宽松模式下中间的空白会被去掉，被空白隔开的代理对在 replaceAll 之后会重新配对
+                int j = i + 1;
+                if (loose) {
+                    while (j < len && text.charAt(j) < 0x80 && isAsciiWhitespace((byte) text.charAt(j))) j++;
+                }
+                char next = j < len ? text.charAt(j) : 0;
+                if (Character.isHighSurrogate(c) && Character.isLowSurrogate(next)) {
+                    int cp = Character.toCodePoint(c, next);
+                    i = j;
+                    out[o++] = (byte) (0xF0 | (cp >> 18));
+                    out[o++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    out[o++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    out[o++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    // 与 String.getBytes(UTF_8) 一致：不成对的代理字符编码为 '?'
+                    out[o++] = '?';
+                }
+            } else {
+                out[o++] = (byte) (0xE0 | (c >> 12));
+                out[o++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[o++] = (byte) (0x80 | (c & 0x3F));
+            }
+
+            if (o >= limit) {
+                md.update(out, 0, o);
+                o = 0;
+            }
+        }
+        md.update(out, 0, o);
+        return toHex(md.digest());
+    }
+
+    /**
+     * 按字符串方式计算标准 MD5 和空白判断，用于非法 UTF-8 内容的兜底
+     */
+    public static TextDigest standardMd5Legacy(byte[] content) {
+        String text = new String(content, StandardCharsets.UTF_8);
+        if (text.trim().isEmpty()) return new TextDigest(true, null);
+        return new TextDigest(false, standardMd5(text));
+    }
+
+    /**
+     * 与 text.toString().trim().isEmpty() 等价，但不复制内容
+     */
+    public static boolean isBlank(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') return false;
+        }
+        return true;
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xFF;
+            chars[i * 2] = HEX[v >>> 4];
+            chars[i * 2 + 1] = HEX[v & 0x0F];
+        }
+        return new String(chars);
+    }
+
+    // 正则 \s 匹配的字符：[ \t\n\x0B\f\r]
+    private static boolean isAsciiWhitespace(byte b) {
+        return b == ' ' || (b >= 0x09 && b <= 0x0D);
+    }
+
+    /**
+     * 严格的 UTF-8 校验 (与 JDK 解码器一致：拒绝超长编码、代理区编码和超出 U+10FFFF 的编码)
+     */
+    private static final class Utf8Validator {
+        private int remaining;
+        private int lower = 0x80;
+        private int upper = 0xBF;
+
+        boolean accept(byte b) {
+            int v = b & 0xFF;
+            if (remaining == 0) {
+                if (v < 0x80) return true;
+                lower = 0x80;
+                upper = 0xBF;
+                if (v >= 0xC2 && v <= 0xDF) {
+                    remaining = 1;
+                } else if (v >= 0xE0 && v <= 0xEF) {
+                    remaining = 2;
+                    if (v == 0xE0) lower = 0xA0;
+                    if (v == 0xED) upper = 0x9F;
+                } else if (v >= 0xF0 && v <= 0xF4) {
+                    remaining = 3;
+                    if (v == 0xF0) lower = 0x90;
+                    if (v == 0xF4) upper = 0x8F;
+                } else {
+                    return false;
+                }
+                return true;
+            }
+            if (v < lower || v > upper) return false;
+            lower = 0x80;
+            upper = 0xBF;
+            remaining--;
+            return true;
+        }
+
+        boolean isComplete() {
+            return remaining == 0;
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package com.bap.dev.util;
 
 import bap.java.CJavaConst;
+import com.bap.dev.service.BapModuleRootIndex;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 public class BapUtils {
 
     /**
@@ -21,4 +29,55 @@ public class BapUtils {
         }
         return null;
     }
+
+    /**
+     * 通过模块根目录索引查找 (不遍历 VFS)，用于监听器等高频调用的场景
+     * 只能找到已注册为模块 Content Root 的 Bap 模块
+     */
+    public static VirtualFile findModuleRoot(Project project, VirtualFile current) {
+        if (current == null || project.isDisposed()) return null;
+        return BapModuleRootIndex.getInstance(project).findModuleRoot(current);
+    }
+
+    /**
+     * 文档在编辑器中有未保存的修改时返回其内容，否则返回 null
+     * 刷新和提交直接使用内存中的内容，不再需要先保存全部文档
+     */
+    public static CharSequence getUnsavedText(VirtualFile file) {
+        FileDocumentManager documentManager = FileDocumentManager.getInstance();
+        Document document = documentManager.getCachedDocument(file);
+        if (document == null || !documentManager.isDocumentUnsaved(document)) return null;
+        return document.getImmutableCharSequence();
+    }
+
+    /**
+     * 文件内容的字节，未保存的文档按保存时的格式转换 (换行符、编码、BOM)，与保存后磁盘上的内容一致
+     */
+    public static byte[] contentsToByteArray(VirtualFile file) throws IOException {
+        CharSequence unsavedText = getUnsavedText(file);
+        if (unsavedText == null) return file.contentsToByteArray();
+
+        String text = unsavedText.toString();
+        String separator = file.getDetectedLineSeparator();
+        if (separator != null && !"\n".equals(separator)) {
+            text = StringUtil.convertLineSeparators(text, separator);
+        }
+        byte[] body = text.getBytes(file.getCharset());
+        byte[] bom = file.getBOM();
+        if (bom == null || bom.length == 0) return body;
+
+        byte[] result = new byte[bom.length + body.length];
+        System.arraycopy(bom, 0, result, 0, bom.length);
+        System.arraycopy(body, 0, result, bom.length, body.length);
+        return result;
+    }
+
+    /**
+     * Java 源码文本，未保存的文档直接取内存中的内容
+     */
+    public static String loadText(VirtualFile file) throws IOException {
+        CharSequence unsavedText = getUnsavedText(file);
+        if (unsavedText != null) return unsavedText.toString();
+        return new String(file.contentsToByteArray(), StandardCharsets.UTF_8);
+    }
 }
\ No newline at end of file